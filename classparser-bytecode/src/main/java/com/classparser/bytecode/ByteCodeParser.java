@@ -1,20 +1,42 @@
 package com.classparser.bytecode;
 
 import com.classparser.api.ClassParser;
+import com.classparser.api.ParsingResult;
 import com.classparser.bytecode.api.ByteCodeCollector;
 import com.classparser.bytecode.api.Decompiler;
-import com.classparser.bytecode.collector.ChainByteCodeCollector;
+import com.classparser.bytecode.cache.SourceCache;
+import com.classparser.bytecode.cache.SourceKey;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.exception.ByteCodeParserException;
 import com.classparser.bytecode.exception.classes.IllegalClassException;
+import com.classparser.bytecode.exception.decompile.DecompilationException;
+import com.classparser.bytecode.exception.decompile.DecompilationTimeoutException;
 import com.classparser.bytecode.saver.BytecodeFileSaver;
 import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.Deadline;
 import com.classparser.bytecode.utils.InnerClassesCollector;
 import com.classparser.configuration.Configuration;
+import com.classparser.util.BulkParsingUtils;
 
+import java.io.IOException;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of {@link ClassParser} provides
@@ -29,6 +51,8 @@ import java.util.List;
  */
 public class ByteCodeParser implements ClassParser {
 
+    private static final long MAX_CAPTURED_CODE_LENGTH = 1024 * 1024;
+
     private final ConfigurationManager configurationManager;
 
     private final BytecodeFileSaver saver;
@@ -39,26 +63,358 @@ public class ByteCodeParser implements ClassParser {
 
     public ByteCodeParser() {
         this.configurationManager = new ConfigurationManager();
-        this.bytecodeCollector = new ChainByteCodeCollector(configurationManager);
+        this.bytecodeCollector = configurationManager.getByteCodeCollector();
         this.classesCollector = new InnerClassesCollector(configurationManager);
         this.saver = new BytecodeFileSaver(configurationManager);
     }
 
     @Override
     public String parseClass(Class<?> clazz) throws ByteCodeParserException {
+        return decompile(collectClassByteCode(clazz));
+    }
+
+    /**
+     * Parses class and writes decompiled code to output
+     * Decompiled code is streamed to output and captured for caching only up to
+     * bounded length, so code of large classes isn't copied and isn't cached
+     * Concurrent requests of the same class wait for one decompilation
+     *
+     * @param clazz  class for parsing
+     * @param output output for decompiled code
+     * @throws ByteCodeParserException if class can't be parsed
+     */
+    @Override
+    public void parseClass(Class<?> clazz, Appendable output) throws ByteCodeParserException {
+        if (output == null) {
+            throw new NullPointerException("Output for decompiled code can't be a null");
+        }
+
+        ClassByteCode classByteCode = collectClassByteCode(clazz);
+        Decompiler decompiler = getDecompiler();
+
+        SourceCache sourceCache = configurationManager.getSourceCache();
+        if (!sourceCache.isEnabled()) {
+            decompiler.decompile(classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses, output);
+            return;
+        }
+
+        SourceKey key = sourceCache.createKey(decompiler, classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses);
+        long maxCapturedLength = Math.min(MAX_CAPTURED_CODE_LENGTH, configurationManager.getSourceCacheMaxWeight());
+        CapturingAppendable capturingOutput = new CapturingAppendable(output, maxCapturedLength);
+        String source = sourceCache.computeIfAbsent(key, () -> capturingOutput.capture(() ->
+                decompiler.decompile(classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses, capturingOutput)));
+
+        if (!capturingOutput.isUsed()) {
+            try {
+                output.append(source);
+            } catch (IOException exception) {
+                throw new ByteCodeParserException("Decompiled code can't be written to output", exception);
+            }
+        }
+    }
+
+    /**
+     * Parses class asynchronously
+     * Byte code is collected in {@link ConfigurationManager#getCollectingExecutor()},
+     * because collecting may be blocked by I/O, agent attaching and retransformation,
+     * after that byte code is decompiled in {@link ConfigurationManager#getParsingExecutor()}
+     *
+     * @param clazz class for parsing
+     * @return future of decompiled code of class
+     */
+    @Override
+    public CompletableFuture<String> parseClassAsync(Class<?> clazz) {
+        return CompletableFuture
+                .supplyAsync(() -> collectClassByteCode(clazz), configurationManager.getCollectingExecutor())
+                .thenApplyAsync(this::decompile, configurationManager.getParsingExecutor());
+    }
+
+    /**
+     * Parses class with deadline
+     * Byte code is collected and decompiled in worker thread,
+     * deadline is bound to worker, so collecting of byte code and loading of
+     * classes referenced by decompiler are stopped after expiration of deadline
+     * If deadline is expired, then deadline is cancelled and
+     * stub of class with comment about timeout is returned
+     * Worker is never interrupted, because interruption closes channels
+     * of shared caches which are used by worker
+     * <p>
+     * Decompilers observe deadline only between steps of their work, such as
+     * loading of referenced classes, so expired parsing can occupy its worker
+     * for some time after stub was returned, count of workers is bounded,
+     * if all of them are busy, then parsing is rejected
+     *
+     * @param clazz   class for parsing
+     * @param timeout max time of parsing
+     * @param unit    unit of timeout
+     * @return decompiled code of class or stub of class if deadline is expired
+     * @throws ByteCodeParserException if parsing was failed before deadline
+     *                                 or all workers are busy
+     */
+    public String parseClass(Class<?> clazz, long timeout, TimeUnit unit) throws ByteCodeParserException {
+        checkToCorrectClass(clazz);
+
+        Deadline deadline = Deadline.after(timeout, unit);
+        Future<String> parsing;
+        try {
+            parsing = DecompilationWorkerHolder.EXECUTOR.submit(() -> deadline.call(() -> parseClass(clazz)));
+        } catch (RejectedExecutionException exception) {
+            throw new DecompilationException("All " + DecompilationWorkerHolder.MAX_WORKER_COUNT
+                                             + " workers for parsing with deadline are busy", exception);
+        }
+
+        try {
+            return parsing.get(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException exception) {
+            return getTimeoutStub(clazz, deadline);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new DecompilationException("Parsing of class was interrupted", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof DecompilationTimeoutException || deadline.isExpired()) {
+                return getTimeoutStub(clazz, deadline);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new ByteCodeParserException("Parsing of class was failed", cause);
+        } finally {
+            deadline.cancel();
+            parsing.cancel(false);
+        }
+    }
+
+    /**
+     * Creates stub of class which is returned if deadline of parsing is expired
+     * Stub of nested class is declared as top level class with binary name
+     *
+     * @param clazz    class for parsing
+     * @param deadline expired deadline
+     * @return stub of class
+     */
+    private String getTimeoutStub(Class<?> clazz, Deadline deadline) {
+        String className = ClassNameConverter.toJavaClassName(clazz);
+        StringBuilder stub = new StringBuilder();
+
+        int packageSeparator = className.lastIndexOf('.');
+        if (packageSeparator > 0) {
+            stub.append("package ").append(className, 0, packageSeparator).append(";\n\n");
+        }
+
+        int modifiers = clazz.getModifiers() & Modifier.classModifiers()
+                        & ~(Modifier.STATIC | Modifier.PRIVATE | Modifier.PROTECTED);
+        String kind = "class";
+        if (clazz.isAnnotation()) {
+            kind = "@interface";
+            modifiers &= ~Modifier.ABSTRACT;
+        } else if (clazz.isInterface()) {
+            kind = "interface";
+            modifiers &= ~Modifier.ABSTRACT;
+        } else if (clazz.isEnum()) {
+            kind = "enum";
+            modifiers &= ~(Modifier.ABSTRACT | Modifier.FINAL);
+        }
+
+        String modifiersDeclaration = Modifier.toString(modifiers);
+        stub.append("/*\n")
+            .append(" * Decompilation of class ").append(className)
+            .append(" wasn't completed in ").append(deadline.getTimeout(TimeUnit.MILLISECONDS)).append(" ms\n")
+            .append(" */\n")
+            .append(modifiersDeclaration).append(modifiersDeclaration.isEmpty() ? "" : " ")
+            .append(kind).append(' ').append(className.substring(packageSeparator + 1)).append(" {\n")
+            .append("}\n");
+
+        return stub.toString();
+    }
+
+    /**
+     * Collects byte code of class and its inner classes
+     * and saves it to files if it is enabled
+     *
+     * @param clazz class for parsing
+     * @return collected byte code
+     */
+    private ClassByteCode collectClassByteCode(Class<?> clazz) {
         checkToCorrectClass(clazz);
+        Deadline.checkCurrent();
+
+        Map<Class<?>, byte[]> byteCodes = collectByteCodes(clazz);
 
-        byte[] byteCode = getByteCodeOfClass(clazz);
-        List<byte[]> byteCodeOfInnerClasses = getByteCodeOfInnerClasses(clazz);
+        byte[] byteCode = getByteCodeOfClass(clazz, byteCodes);
+        List<byte[]> byteCodeOfInnerClasses = getByteCodeOfInnerClasses(clazz, byteCodes);
 
         if (configurationManager.isSaveToFile()) {
             saveByteCodeToFile(byteCode, byteCodeOfInnerClasses);
         }
 
+        return new ClassByteCode(byteCode, byteCodeOfInnerClasses);
+    }
+
+    /**
+     * Decompiles collected byte code
+     * Decompiled code is taken from cache if the same byte code
+     * was already decompiled with the same configuration
+     *
+     * @param classByteCode byte code of class and its inner classes
+     * @return decompiled code of class
+     */
+    private String decompile(ClassByteCode classByteCode) {
+        Deadline.checkCurrent();
+        Decompiler decompiler = getDecompiler();
+
+        SourceCache sourceCache = configurationManager.getSourceCache();
+        if (!sourceCache.isEnabled()) {
+            return decompiler.decompile(classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses);
+        }
+
+        SourceKey key = sourceCache.createKey(decompiler, classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses);
+        return sourceCache.computeIfAbsent(key,
+                () -> decompiler.decompile(classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses));
+    }
+
+    /**
+     * Obtains decompiler from configuration and sets current configuration into it
+     *
+     * @return configured decompiler
+     */
+    private Decompiler getDecompiler() {
         Decompiler decompiler = configurationManager.getDecompiler();
         decompiler.setConfigurationManager(configurationManager);
 
-        return decompiler.decompile(byteCode, byteCodeOfInnerClasses);
+        return decompiler;
+    }
+
+    @Override
+    public ParsingResult parseClasses(Collection<Class<?>> classes) {
+        return BulkParsingUtils.parseClasses(classes,
+                configurationManager.getParsingExecutor(),
+                this::getEnclosingClass,
+                configurationManager.getDecompilationBatchSize(),
+                this::parseBatch);
+    }
+
+    /**
+     * Parses batch of classes
+     * Classes which decompiled code is cached are not passed to decompiler,
+     * byte code of other classes of batch is decompiled by one call of decompiler,
+     * if decompilation of batch was interrupted with error, then classes are
+     * decompiled one by one for isolation of errors, classes omitted
+     * by decompiler in result of batch are decompiled one by one too
+     *
+     * @param classes classes for parsing
+     * @return result of parsing
+     */
+    private ParsingResult parseBatch(List<Class<?>> classes) {
+        Map<Class<?>, String> sources = new LinkedHashMap<>();
+        Map<Class<?>, Throwable> failures = new LinkedHashMap<>();
+
+        Map<Class<?>, ClassByteCode> classByteCodes = new LinkedHashMap<>();
+        for (Class<?> clazz : classes) {
+            try {
+                classByteCodes.put(clazz, collectClassByteCode(clazz));
+            } catch (RuntimeException | LinkageError exception) {
+                failures.put(clazz, exception);
+            }
+        }
+
+        Decompiler decompiler = getDecompiler();
+        SourceCache sourceCache = configurationManager.getSourceCache();
+        Map<Class<?>, SourceKey> keys = new LinkedHashMap<>();
+        if (sourceCache.isEnabled()) {
+            Iterator<Map.Entry<Class<?>, ClassByteCode>> iterator = classByteCodes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Class<?>, ClassByteCode> entry = iterator.next();
+                ClassByteCode classByteCode = entry.getValue();
+                SourceKey key = sourceCache.createKey(decompiler, classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses);
+
+                String source = sourceCache.get(key);
+                if (source != null) {
+                    sources.put(entry.getKey(), source);
+                    iterator.remove();
+                } else {
+                    keys.put(entry.getKey(), key);
+                }
+            }
+        }
+
+        if (!classByteCodes.isEmpty()) {
+            Map<Class<?>, ClassByteCode> omittedClassByteCodes = new LinkedHashMap<>();
+            try {
+                Map<byte[], Collection<byte[]>> byteCodes = new LinkedHashMap<>();
+                for (ClassByteCode classByteCode : classByteCodes.values()) {
+                    byteCodes.put(classByteCode.byteCode, classByteCode.byteCodeOfInnerClasses);
+                }
+
+                Map<byte[], String> decompiledClasses = decompiler.decompileAll(byteCodes);
+                for (Map.Entry<Class<?>, ClassByteCode> entry : classByteCodes.entrySet()) {
+                    String source = decompiledClasses != null ? decompiledClasses.get(entry.getValue().byteCode) : null;
+                    if (source == null) {
+                        omittedClassByteCodes.put(entry.getKey(), entry.getValue());
+                        continue;
+                    }
+
+                    sources.put(entry.getKey(), source);
+
+                    SourceKey key = keys.get(entry.getKey());
+                    if (key != null) {
+                        sourceCache.put(key, source);
+                    }
+                }
+            } catch (RuntimeException | LinkageError batchException) {
+                omittedClassByteCodes = classByteCodes;
+            }
+
+            decompileOneByOne(omittedClassByteCodes, sources, failures);
+        }
+
+        return new ParsingResult(sources, failures);
+    }
+
+    /**
+     * Decompiles classes one by one
+     * Used for classes which were not decompiled in batch,
+     * class is failed if decompiler returned no code for it
+     *
+     * @param classByteCodes byte code of classes
+     * @param sources        decompiled code of classes
+     * @param failures       failures of classes
+     */
+    private void decompileOneByOne(Map<Class<?>, ClassByteCode> classByteCodes,
+                                   Map<Class<?>, String> sources,
+                                   Map<Class<?>, Throwable> failures) {
+        for (Map.Entry<Class<?>, ClassByteCode> entry : classByteCodes.entrySet()) {
+            try {
+                String source = decompile(entry.getValue());
+                if (source != null) {
+                    sources.put(entry.getKey(), source);
+                } else {
+                    failures.put(entry.getKey(), new DecompilationException("Decompiler returned no code for " + entry.getKey()));
+                }
+            } catch (RuntimeException | LinkageError exception) {
+                failures.put(entry.getKey(), exception);
+            }
+        }
+    }
+
+    /**
+     * Obtains enclosing class which decompiled code contains code of class
+     *
+     * @param clazz any class
+     * @return enclosing class or null if inner classes are not decompiled
+     */
+    private Class<?> getEnclosingClass(Class<?> clazz) {
+        if (clazz != null && configurationManager.isDecompileInnerClasses()) {
+            try {
+                return clazz.getEnclosingClass();
+            } catch (SecurityException | LinkageError exception) {
+                return null;
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -75,36 +431,48 @@ public class ByteCodeParser implements ClassParser {
     }
 
     /**
-     * Obtains byte code of inner classes for class
+     * Collects byte code of class and byte code of all its inner classes
+     * if decompilation of inner classes is enabled
      *
      * @param clazz any class
-     * @return list with byte code of inner classes
+     * @return map where key is class and value is byte code of class
      */
-    private List<byte[]> getByteCodeOfInnerClasses(Class<?> clazz) {
+    private Map<Class<?>, byte[]> collectByteCodes(Class<?> clazz) {
         if (configurationManager.isDecompileInnerClasses()) {
-            List<byte[]> byteCodeOfInnerClasses = new ArrayList<>();
+            return classesCollector.getByteCodesOfClassAndInnerClasses(clazz);
+        }
 
-            for (Class<?> innerClass : classesCollector.getInnerClasses(clazz)) {
-                byte[] byteCodeOfInnerClass = bytecodeCollector.getByteCode(innerClass);
-                if (byteCodeOfInnerClass != null) {
-                    byteCodeOfInnerClasses.add(byteCodeOfInnerClass);
-                }
-            }
+        return bytecodeCollector.getByteCodes(Collections.singletonList(clazz));
+    }
+
+    /**
+     * Obtains byte code of inner classes from collected byte codes
+     *
+     * @param clazz     any class
+     * @param byteCodes collected byte codes
+     * @return list with byte code of inner classes
+     */
+    private List<byte[]> getByteCodeOfInnerClasses(Class<?> clazz, Map<Class<?>, byte[]> byteCodes) {
+        List<byte[]> byteCodeOfInnerClasses = new ArrayList<>();
 
-            return byteCodeOfInnerClasses;
+        for (Map.Entry<Class<?>, byte[]> entry : byteCodes.entrySet()) {
+            if (entry.getKey() != clazz) {
+                byteCodeOfInnerClasses.add(entry.getValue());
+            }
         }
 
-        return Collections.emptyList();
+        return byteCodeOfInnerClasses;
     }
 
     /**
-     * Obtains byte code of class
+     * Obtains byte code of class from collected byte codes
      *
-     * @param clazz any class
+     * @param clazz     any class
+     * @param byteCodes collected byte codes
      * @return byte code of class
      */
-    private byte[] getByteCodeOfClass(Class<?> clazz) {
-        byte[] byteCode = bytecodeCollector.getByteCode(clazz);
+    private byte[] getByteCodeOfClass(Class<?> clazz, Map<Class<?>, byte[]> byteCodes) {
+        byte[] byteCode = byteCodes.get(clazz);
         if (byteCode == null) {
             String className = ClassNameConverter.toJavaClassName(clazz);
             throw new ByteCodeParserException("Byte code of class: \"" + className + "\" is not found");
@@ -138,4 +506,128 @@ public class ByteCodeParser implements ClassParser {
     public void setConfiguration(Configuration configuration) {
         configurationManager.reloadConfiguration(configuration);
     }
+
+    /**
+     * Holder of executor for parsing with deadline
+     * Executor never queues tasks, so each parsing gets own worker
+     * which is stopped by its deadline,
+     * count of workers is bounded and tasks above this bound are rejected
+     */
+    private static class DecompilationWorkerHolder {
+
+        private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+        private static final int MAX_WORKER_COUNT = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        private static final long KEEP_ALIVE_SECONDS = 60;
+
+        private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, MAX_WORKER_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "classparser-decompilation-worker-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Output which passes decompiled code to other output
+     * and captures it for caching
+     * Code is captured only up to max length, capturing of longer code
+     * is stopped and captured part is released, such code isn't cached
+     */
+    private static class CapturingAppendable implements Appendable {
+
+        private final Appendable output;
+
+        private final long maxLength;
+
+        private StringBuilder capturedCode;
+
+        private boolean isUsed;
+
+        private CapturingAppendable(Appendable output, long maxLength) {
+            this.output = output;
+            this.maxLength = maxLength;
+            this.capturedCode = new StringBuilder();
+        }
+
+        @Override
+        public Appendable append(CharSequence sequence) throws IOException {
+            CharSequence value = sequence != null ? sequence : "null";
+            return append(value, 0, value.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence sequence, int start, int end) throws IOException {
+            output.append(sequence, start, end);
+            if (reserve(end - start)) {
+                capturedCode.append(sequence != null ? sequence : "null", start, end);
+            }
+
+            return this;
+        }
+
+        @Override
+        public Appendable append(char character) throws IOException {
+            output.append(character);
+            if (reserve(1)) {
+                capturedCode.append(character);
+            }
+
+            return this;
+        }
+
+        /**
+         * Runs decompilation which writes code to this output
+         *
+         * @param decompilation decompilation of class
+         * @return captured decompiled code or null if code is too long for caching
+         */
+        private String capture(Runnable decompilation) {
+            isUsed = true;
+            decompilation.run();
+
+            return capturedCode != null ? capturedCode.toString() : null;
+        }
+
+        /**
+         * Checks if decompiled code was written to this output
+         *
+         * @return true if decompilation was run with this output
+         */
+        private boolean isUsed() {
+            return isUsed;
+        }
+
+        /**
+         * Checks if code of given length still can be captured
+         * Captured code is released if max length is exceeded
+         *
+         * @param length length of appended code
+         * @return true if code should be captured
+         */
+        private boolean reserve(int length) {
+            if (capturedCode != null && capturedCode.length() + (long) length > maxLength) {
+                capturedCode = null;
+            }
+
+            return capturedCode != null;
+        }
+    }
+
+    /**
+     * Byte code of class and its inner classes is passed
+     * from collecting stage to decompilation stage
+     */
+    private static class ClassByteCode {
+
+        private final byte[] byteCode;
+
+        private final List<byte[]> byteCodeOfInnerClasses;
+
+        private ClassByteCode(byte[] byteCode, List<byte[]> byteCodeOfInnerClasses) {
+            this.byteCode = byteCode;
+            this.byteCodeOfInnerClasses = byteCodeOfInnerClasses;
+        }
+    }
 }
\ No newline at end of file
@@ -2,6 +2,10 @@ package com.classparser.bytecode.api;
 
 import com.classparser.bytecode.configuration.ConfigurationManager;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Interface provide methods for obtains byte code of classes
  *
@@ -18,6 +22,28 @@ public interface ByteCodeCollector extends Comparable<ByteCodeCollector> {
      */
     byte[] getByteCode(Class<?> clazz);
 
+    /**
+     * Tryings find byte code of several classes at once
+     * Collectors which can obtain byte code of many classes
+     * by one operation should override this method
+     *
+     * @param classes classes for which is getting byte code
+     * @return map where key is class and value is byte code of class,
+     * classes which byte code is not found are absent in map
+     */
+    default Map<Class<?>, byte[]> getByteCodes(Collection<Class<?>> classes) {
+        Map<Class<?>, byte[]> byteCodes = new LinkedHashMap<>();
+
+        for (Class<?> clazz : classes) {
+            byte[] byteCode = getByteCode(clazz);
+            if (byteCode != null) {
+                byteCodes.put(clazz, byteCode);
+            }
+        }
+
+        return byteCodes;
+    }
+
     /**
      * Order value by which will call collectors chain
      * From lower to upper
@@ -3,9 +3,14 @@ package com.classparser.bytecode.api;
 import com.classparser.bytecode.ByteCodeParser;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.decompile.fernflower.FernflowerDecompiler;
+import com.classparser.bytecode.exception.decompile.DecompilationException;
+import com.classparser.bytecode.utils.ImplementationVersionUtils;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Interface provides methods for byte code decompilation
@@ -38,6 +43,55 @@ public interface Decompiler {
      */
     String decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes);
 
+    /**
+     * Process of decompiling byte code with inner classes
+     * and writing of decompiled code to output
+     * Decompilers which can write decompiled code directly
+     * should override this method for avoid of intermediate copies
+     *
+     * @param byteCode               - byte code of class
+     * @param nestedClassesByteCodes - byte code of inner classes
+     * @param output                 - output for decompiled code
+     */
+    default void decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes, Appendable output) {
+        String decompiledCode = decompile(byteCode, nestedClassesByteCodes);
+        try {
+            output.append(decompiledCode);
+        } catch (IOException exception) {
+            throw new DecompilationException("Decompiled code can't be written to output", exception);
+        }
+    }
+
+    /**
+     * Process of decompiling byte code of several classes with their inner classes
+     * Decompilers which can load several classes into one context should
+     * override this method for avoid of context setup for each class
+     *
+     * @param byteCodes - map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @return map where key is byte code of class and value is decompiled code
+     */
+    default Map<byte[], String> decompileAll(Map<byte[], Collection<byte[]>> byteCodes) {
+        Map<byte[], String> decompiledClasses = new LinkedHashMap<>();
+        for (Map.Entry<byte[], Collection<byte[]>> entry : byteCodes.entrySet()) {
+            decompiledClasses.put(entry.getKey(), decompile(entry.getKey(), entry.getValue()));
+        }
+
+        return decompiledClasses;
+    }
+
+    /**
+     * Obtains version of decompiler
+     * Version is part of key of persisted decompiled code, so code decompiled
+     * by other version of decompiler is not reused
+     * Adapters of external decompilers should return version of decompiler library
+     *
+     * @return version of decompiler
+     */
+    default String getVersion() {
+        return ImplementationVersionUtils.getImplementationVersion(getClass());
+    }
+
     /**
      * Sets instance of {@link ConfigurationManager} into decompiler
      *
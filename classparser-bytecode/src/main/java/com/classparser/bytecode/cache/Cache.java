@@ -0,0 +1,78 @@
+package com.classparser.bytecode.cache;
+
+/**
+ * Bounded cache with statistics of hits, misses and evictions
+ * Implementations should be thread safe
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Obtains value from cache
+     *
+     * @param key any key
+     * @return value or null if value is absent
+     */
+    V get(K key);
+
+    /**
+     * Puts value to cache and evicts other entries
+     * if limits of cache is exceeded
+     *
+     * @param key   any key
+     * @param value any value
+     */
+    void put(K key, V value);
+
+    /**
+     * Removes value from cache
+     *
+     * @param key any key
+     * @return removed value or null if value was absent
+     */
+    V remove(K key);
+
+    /**
+     * Removes all entries from cache
+     */
+    void clear();
+
+    /**
+     * Obtains current count of entries in cache
+     *
+     * @return count of entries
+     */
+    int size();
+
+    /**
+     * Obtains current total weight of values in cache
+     *
+     * @return weight of cache
+     */
+    long weight();
+
+    /**
+     * Obtains count of successful lookups
+     *
+     * @return count of hits
+     */
+    long getHitCount();
+
+    /**
+     * Obtains count of unsuccessful lookups
+     *
+     * @return count of misses
+     */
+    long getMissCount();
+
+    /**
+     * Obtains count of entries were evicted by limits of cache
+     *
+     * @return count of evictions
+     */
+    long getEvictionCount();
+}
\ No newline at end of file
@@ -0,0 +1,445 @@
+package com.classparser.bytecode.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent cache of decompiled code in directory of file system
+ * Each entry is stored to separate file which name is derived from {@link SourceKey},
+ * so decompiled code is found again after restart of application
+ * <p>
+ * Entry is written to temporary file and moved to its place atomically,
+ * so readers and other processes never see partially written entries
+ * Time of last access to entry is stored as last modified time of file,
+ * least recently used files are removed if total size of directory exceeds the limit
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class DiskSourceCache {
+
+    private static final int MAGIC = 0x43505343;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 + 4;
+
+    private static final String FILE_EXTENSION = ".src";
+
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private static final long TEMPORARY_FILE_EXPIRATION = TimeUnit.HOURS.toMillis(1);
+
+    private static final long TOUCH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final double CLEANUP_RATIO = 0.9;
+
+    private final Path directory;
+
+    private final long maxWeight;
+
+    private final AtomicLong weight;
+
+    private final AtomicBoolean cleaning;
+
+    private volatile boolean initialized;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param directory directory of disk cache
+     * @param maxWeight max total size of files in bytes
+     */
+    public DiskSourceCache(Path directory, long maxWeight) {
+        this.directory = directory;
+        this.maxWeight = maxWeight;
+        this.weight = new AtomicLong();
+        this.cleaning = new AtomicBoolean();
+    }
+
+    /**
+     * Obtains directory of disk cache
+     *
+     * @return path to directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Obtains max total size of files in directory
+     *
+     * @return max size in bytes
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Obtains total size of files in directory known by this cache
+     *
+     * @return size in bytes
+     */
+    public long getWeight() {
+        initialize();
+        return weight.get();
+    }
+
+    /**
+     * Reads decompiled code from disk cache
+     * Files which are damaged or belong to other key are removed
+     *
+     * @param key key of decompiled code
+     * @return decompiled code or null if it is absent
+     */
+    public String get(SourceKey key) {
+        Path file = getFile(key);
+
+        String source;
+        long lastModified;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                source = null;
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                }
+                buffer.flip();
+                source = readEntry(key, buffer);
+            }
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException exception) {
+            return null;
+        }
+
+        if (source == null) {
+            delete(file);
+        } else {
+            touch(file, lastModified);
+        }
+
+        return source;
+    }
+
+    /**
+     * Writes decompiled code to disk cache
+     * Errors of file system are not rethrown, because cache
+     * never should break decompilation of class
+     *
+     * @param key    key of decompiled code
+     * @param source decompiled code
+     */
+    public void put(SourceKey key, String source) {
+        initialize();
+
+        Path file = getFile(key);
+        if (Files.exists(file)) {
+            return;
+        }
+
+        Path temporaryFile = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMPORARY_FILE_EXTENSION);
+
+            ByteBuffer entry = writeEntry(key, source);
+            long size = entry.remaining();
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                while (entry.hasRemaining()) {
+                    channel.write(entry);
+                }
+            }
+
+            move(temporaryFile, file);
+            temporaryFile = null;
+            weight.addAndGet(size);
+        } catch (IOException exception) {
+            System.err.println("Decompiled code can't be stored to disk cache " + directory + ": " + exception);
+        } finally {
+            if (temporaryFile != null) {
+                delete(temporaryFile);
+            }
+        }
+
+        if (weight.get() > maxWeight) {
+            cleanUp();
+        }
+    }
+
+    /**
+     * Removes all files of disk cache
+     */
+    public void invalidateAll() {
+        initialize();
+
+        for (CacheFile cacheFile : listFiles()) {
+            delete(cacheFile.path);
+        }
+
+        weight.set(0);
+    }
+
+    /**
+     * Computes size of files stored by previous runs of application
+     * Directory is scanned once on first access
+     */
+    private void initialize() {
+        if (!initialized) {
+            synchronized (this) {
+                if (!initialized) {
+                    long totalSize = 0;
+                    for (CacheFile cacheFile : listFiles()) {
+                        totalSize += cacheFile.size;
+                    }
+
+                    weight.set(totalSize);
+                    initialized = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes least recently used files until size of directory
+     * is decreased below the limit with some reserve,
+     * so directory isn't scanned after each written entry
+     * Cleanup is performed only by one thread at the same time
+     */
+    private void cleanUp() {
+        if (!cleaning.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            List<CacheFile> cacheFiles = listFiles();
+            long totalSize = 0;
+            for (CacheFile cacheFile : cacheFiles) {
+                totalSize += cacheFile.size;
+            }
+
+            cacheFiles.sort(Comparator.comparingLong(cacheFile -> cacheFile.lastModified));
+            long targetSize = (long) (maxWeight * CLEANUP_RATIO);
+            for (CacheFile cacheFile : cacheFiles) {
+                if (totalSize <= targetSize) {
+                    break;
+                }
+
+                if (delete(cacheFile.path)) {
+                    totalSize -= cacheFile.size;
+                }
+            }
+
+            weight.set(totalSize);
+        } finally {
+            cleaning.set(false);
+        }
+    }
+
+    /**
+     * Lists all entries of disk cache
+     * Temporary files which were abandoned by crashed processes are removed
+     *
+     * @return list of cache files
+     */
+    private List<CacheFile> listFiles() {
+        List<CacheFile> cacheFiles = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return cacheFiles;
+        }
+
+        long expirationTime = System.currentTimeMillis() - TEMPORARY_FILE_EXPIRATION;
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    String fileName = file.getFileName().toString();
+                    long lastModified = attributes.lastModifiedTime().toMillis();
+                    if (fileName.endsWith(FILE_EXTENSION)) {
+                        cacheFiles.add(new CacheFile(file, attributes.size(), lastModified));
+                    } else if (fileName.endsWith(TEMPORARY_FILE_EXTENSION) && lastModified < expirationTime) {
+                        delete(file);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            System.err.println("Disk cache " + directory + " can't be scanned: " + exception);
+        }
+
+        return cacheFiles;
+    }
+
+    /**
+     * Obtains file of entry
+     * Files are distributed to subdirectories by first byte of hash of byte code
+     *
+     * @param key key of decompiled code
+     * @return path to file of entry
+     */
+    private Path getFile(SourceKey key) {
+        long fingerprintHash = SourceKey.hash(key.getFingerprint().getBytes(StandardCharsets.UTF_8));
+        String hash = String.format("%016x", key.getByteCodeHash());
+        String fileName = hash
+                          + '-' + String.format("%016x", key.getInnerClassesHash())
+                          + '-' + Long.toHexString(key.getLength())
+                          + '-' + String.format("%016x", fingerprintHash)
+                          + FILE_EXTENSION;
+
+        return directory.resolve(hash.substring(0, 2)).resolve(fileName);
+    }
+
+    /**
+     * Serializes entry to buffer
+     * Header contains full key, so collisions of names of files are detected on reading
+     *
+     * @param key    key of decompiled code
+     * @param source decompiled code
+     * @return buffer ready for writing
+     */
+    private ByteBuffer writeEntry(SourceKey key, String source) {
+        byte[] fingerprint = key.getFingerprint().getBytes(StandardCharsets.UTF_8);
+        byte[] code = source.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + fingerprint.length + code.length);
+        buffer.putInt(MAGIC)
+              .putInt(FORMAT_VERSION)
+              .putLong(key.getByteCodeHash())
+              .putLong(key.getInnerClassesHash())
+              .putLong(key.getLength())
+              .putInt(fingerprint.length)
+              .putInt(code.length)
+              .put(fingerprint)
+              .put(code);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /**
+     * Deserializes entry from buffer and checks that it belongs to key
+     *
+     * @param key    key of decompiled code
+     * @param buffer content of file
+     * @return decompiled code or null if entry is damaged or belongs to other key
+     */
+    private String readEntry(SourceKey key, ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != key.getByteCodeHash()
+                    || buffer.getLong() != key.getInnerClassesHash()
+                    || buffer.getLong() != key.getLength()) {
+                return null;
+            }
+
+            int fingerprintLength = buffer.getInt();
+            int codeLength = buffer.getInt();
+            if (fingerprintLength < 0 || codeLength < 0 || buffer.remaining() != fingerprintLength + codeLength) {
+                return null;
+            }
+
+            byte[] fingerprint = new byte[fingerprintLength];
+            buffer.get(fingerprint);
+            if (!Arrays.equals(fingerprint, key.getFingerprint().getBytes(StandardCharsets.UTF_8))) {
+                return null;
+            }
+
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (BufferUnderflowException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Moves temporary file to file of entry atomically if file system supports it
+     *
+     * @param source temporary file
+     * @param target file of entry
+     * @throws IOException if file can't be moved
+     */
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Updates time of last access to file
+     * Time is updated not often than once in minute for reducing of writes to file system
+     *
+     * @param file         file of entry
+     * @param lastModified current last modified time of file
+     */
+    private void touch(Path file, long lastModified) {
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - lastModified > TOUCH_INTERVAL) {
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(currentTime));
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Removes file if it exists
+     *
+     * @param file any file
+     * @return true if file was removed
+     */
+    private boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * File of entry with its attributes
+     */
+    private static class CacheFile {
+
+        private final Path path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private CacheFile(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.classparser.bytecode.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Simple bounded cache uses least recently used eviction policy
+ * Cache is limited by count of entries and by total weight of values
+ * and provides statistics of hits, misses and evictions
+ * <p>
+ * This class is thread safe
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class LruCache<K, V> implements Cache<K, V> {
+
+    private final Map<K, V> entries;
+
+    private final int maxSize;
+
+    private final long maxWeight;
+
+    private final ToLongFunction<? super V> weigher;
+
+    private final AtomicLong hitCount;
+
+    private final AtomicLong missCount;
+
+    private final AtomicLong evictionCount;
+
+    private long weight;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param maxSize   max count of entries in cache
+     * @param maxWeight max total weight of all values in cache
+     * @param weigher   function computes weight of any value
+     */
+    public LruCache(int maxSize, long maxWeight, ToLongFunction<? super V> weigher) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+    }
+
+    /**
+     * Obtains value from cache and marks it as recently used
+     *
+     * @param key any key
+     * @return value or null if value is absent
+     */
+    @Override
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+
+        return value;
+    }
+
+    /**
+     * Puts value to cache and evicts least recently used entries
+     * if limits of cache is exceeded
+     * Value which is heavier than max weight of cache is not stored
+     *
+     * @param key   any key
+     * @param value any value
+     */
+    @Override
+    public synchronized void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        if (maxSize <= 0 || valueWeight > maxWeight) {
+            return;
+        }
+
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += valueWeight;
+
+        evictIfNecessary();
+    }
+
+    /**
+     * Removes value from cache
+     *
+     * @param key any key
+     * @return removed value or null if value was absent
+     */
+    @Override
+    public synchronized V remove(K key) {
+        V value = entries.remove(key);
+        if (value != null) {
+            weight -= weigher.applyAsLong(value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Removes all entries from cache
+     */
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Obtains current count of entries in cache
+     *
+     * @return count of entries
+     */
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Obtains current total weight of values in cache
+     *
+     * @return weight of cache
+     */
+    @Override
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Obtains count of successful lookups
+     *
+     * @return count of hits
+     */
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Obtains count of unsuccessful lookups
+     *
+     * @return count of misses
+     */
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Obtains count of entries were evicted by limits of cache
+     *
+     * @return count of evictions
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Evicts least recently used entries while cache limits are exceeded
+     */
+    private void evictIfNecessary() {
+        Iterator<V> iterator = entries.values().iterator();
+        while ((entries.size() > maxSize || weight > maxWeight) && iterator.hasNext()) {
+            V value = iterator.next();
+            iterator.remove();
+            weight -= weigher.applyAsLong(value);
+            evictionCount.incrementAndGet();
+        }
+    }
+}
\ No newline at end of file
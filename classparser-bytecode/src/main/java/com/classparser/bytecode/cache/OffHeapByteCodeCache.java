@@ -0,0 +1,551 @@
+package com.classparser.bytecode.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cache of byte code which stores compressed byte code out of java heap
+ * Byte code is compressed by {@link Deflater} and appended to slabs of direct memory,
+ * slabs are used as ring, so when all slabs are filled the oldest slab is
+ * reused and all its entries are evicted together
+ * <p>
+ * Keys are stored in open addressing index with parallel array of handles,
+ * handle contains sequence number of slab and offset of entry in slab,
+ * entries of reused slabs are detected by sequence number and
+ * removed from index lazily
+ * <p>
+ * Weight of cache is size of compressed byte code of live entries,
+ * memory of removed and replaced entries is reused only together with its slab,
+ * count of entries is limited only by weight
+ * <p>
+ * Slabs and their arrays are allocated lazily when ring grows,
+ * so memory is used only for stored byte code, not for max weight
+ * <p>
+ * This class is thread safe
+ *
+ * @param <K> type of key
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class OffHeapByteCodeCache<K> implements Cache<K, byte[]> {
+
+    private static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    private static final int ENTRY_HEADER_SIZE = 8;
+
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+    private static final int INITIAL_SLAB_CAPACITY = 16;
+
+    private static final int MAX_SLAB_COUNT = 1 << 30;
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private final int slabSize;
+
+    private final int slabCount;
+
+    private final AtomicLong hitCount;
+
+    private final AtomicLong missCount;
+
+    private final AtomicLong evictionCount;
+
+    private ByteBuffer[] slabs;
+
+    private long[] slabSequences;
+
+    private int[] slabEntryCounts;
+
+    private int[] slabWeights;
+
+    private Object[] keys;
+
+    private long[] handles;
+
+    private int indexSize;
+
+    private long sequence;
+
+    private int offset;
+
+    private int entryCount;
+
+    private long weight;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param maxWeight max total size of compressed byte code in bytes
+     */
+    public OffHeapByteCodeCache(long maxWeight) {
+        this(maxWeight, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Constructor for init instance
+     *
+     * @param maxWeight max total size of compressed byte code in bytes
+     * @param slabSize  size of one slab of direct memory
+     */
+    public OffHeapByteCodeCache(long maxWeight, int slabSize) {
+        this.slabSize = (int) Math.max(0, Math.min(slabSize, maxWeight));
+        this.slabCount = (int) Math.max(1, Math.min(MAX_SLAB_COUNT, maxWeight / Math.max(1, slabSize)));
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+        clear();
+    }
+
+    @Override
+    public byte[] get(K key) {
+        StoredByteCode storedByteCode;
+        synchronized (this) {
+            int slot = findSlot(key);
+            if (slot >= 0 && !isValid(handles[slot])) {
+                removeSlot(slot);
+                slot = -1;
+            }
+
+            storedByteCode = slot >= 0 ? read(handles[slot]) : null;
+        }
+
+        byte[] byteCode = storedByteCode != null ? storedByteCode.toByteCode() : null;
+        if (byteCode != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+
+        return byteCode;
+    }
+
+    @Override
+    public void put(K key, byte[] byteCode) {
+        byte[] compressedByteCode = compress(byteCode);
+        byte[] storedByteCode = compressedByteCode != null ? compressedByteCode : byteCode;
+        int entrySize = ENTRY_HEADER_SIZE + storedByteCode.length;
+        if (entrySize > slabSize) {
+            return;
+        }
+
+        synchronized (this) {
+            if (sequence < 0 || offset + entrySize > slabSize) {
+                nextSlab();
+            }
+
+            int ring = getRing(sequence);
+            ByteBuffer slab = slabs[ring].duplicate();
+            slab.position(offset);
+            slab.putInt(byteCode.length)
+                .putInt(compressedByteCode != null ? compressedByteCode.length : 0)
+                .put(storedByteCode);
+
+            long handle = (sequence << 32) | offset;
+            offset += entrySize;
+            slabEntryCounts[ring]++;
+            slabWeights[ring] += entrySize;
+            weight += entrySize;
+            entryCount++;
+
+            putHandle(key, handle);
+        }
+    }
+
+    @Override
+    public byte[] remove(K key) {
+        StoredByteCode storedByteCode = null;
+        synchronized (this) {
+            int slot = findSlot(key);
+            if (slot >= 0) {
+                long handle = handles[slot];
+                if (isValid(handle)) {
+                    storedByteCode = read(handle);
+                    releaseHandle(handle);
+                }
+
+                removeSlot(slot);
+            }
+        }
+
+        return storedByteCode != null ? storedByteCode.toByteCode() : null;
+    }
+
+    @Override
+    public synchronized void clear() {
+        keys = new Object[INITIAL_INDEX_CAPACITY];
+        handles = new long[INITIAL_INDEX_CAPACITY];
+        indexSize = 0;
+
+        int slabCapacity = Math.min(slabCount, INITIAL_SLAB_CAPACITY);
+        slabs = new ByteBuffer[slabCapacity];
+        slabSequences = new long[slabCapacity];
+        slabEntryCounts = new int[slabCapacity];
+        slabWeights = new int[slabCapacity];
+        Arrays.fill(slabSequences, -1);
+        sequence = -1;
+        offset = 0;
+        entryCount = 0;
+        weight = 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entryCount;
+    }
+
+    @Override
+    public synchronized long weight() {
+        return weight;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Switches writing to next slab of ring
+     * Entries of the oldest slab are evicted, slab memory is reused
+     */
+    private void nextSlab() {
+        sequence++;
+        int ring = getRing(sequence);
+        if (ring >= slabs.length) {
+            growSlabs();
+        }
+
+        if (slabSequences[ring] >= 0) {
+            entryCount -= slabEntryCounts[ring];
+            weight -= slabWeights[ring];
+            evictionCount.addAndGet(slabEntryCounts[ring]);
+        }
+
+        if (slabs[ring] == null) {
+            slabs[ring] = ByteBuffer.allocateDirect(slabSize);
+        }
+
+        slabSequences[ring] = sequence;
+        slabEntryCounts[ring] = 0;
+        slabWeights[ring] = 0;
+        offset = 0;
+    }
+
+    /**
+     * Doubles capacity of arrays of slabs
+     * Ring grows only before the first reuse of slab,
+     * so position of each slab in ring is equal to its sequence number
+     */
+    private void growSlabs() {
+        int capacity = (int) Math.min(slabCount, (long) slabs.length * 2);
+        int oldCapacity = slabs.length;
+
+        slabs = Arrays.copyOf(slabs, capacity);
+        slabSequences = Arrays.copyOf(slabSequences, capacity);
+        slabEntryCounts = Arrays.copyOf(slabEntryCounts, capacity);
+        slabWeights = Arrays.copyOf(slabWeights, capacity);
+        Arrays.fill(slabSequences, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * Copies stored entry from slab to heap
+     *
+     * @param handle handle of entry
+     * @return stored entry
+     */
+    private StoredByteCode read(long handle) {
+        ByteBuffer slab = slabs[getRing(handle >>> 32)].duplicate();
+        slab.position(getOffset(handle));
+
+        int length = slab.getInt();
+        int compressedLength = slab.getInt();
+        byte[] byteCode = new byte[compressedLength != 0 ? compressedLength : length];
+        slab.get(byteCode);
+
+        return new StoredByteCode(byteCode, length, compressedLength != 0);
+    }
+
+    /**
+     * Checks if slab of entry wasn't reused
+     *
+     * @param handle handle of entry
+     * @return true if entry is still stored
+     */
+    private boolean isValid(long handle) {
+        return slabSequences[getRing(handle >>> 32)] == handle >>> 32;
+    }
+
+    /**
+     * Releases entry which was replaced or removed
+     * Size of entry is subtracted from weight, memory of entry
+     * is reused when its slab is reused
+     *
+     * @param handle handle of entry
+     */
+    private void releaseHandle(long handle) {
+        if (isValid(handle)) {
+            int ring = getRing(handle >>> 32);
+            int entrySize = getEntrySize(handle);
+            slabEntryCounts[ring]--;
+            slabWeights[ring] -= entrySize;
+            weight -= entrySize;
+            entryCount--;
+        }
+    }
+
+    /**
+     * Reads size of stored entry from its header
+     *
+     * @param handle handle of entry
+     * @return size of entry in slab
+     */
+    private int getEntrySize(long handle) {
+        ByteBuffer slab = slabs[getRing(handle >>> 32)];
+        int offset = getOffset(handle);
+        int length = slab.getInt(offset);
+        int compressedLength = slab.getInt(offset + 4);
+
+        return ENTRY_HEADER_SIZE + (compressedLength != 0 ? compressedLength : length);
+    }
+
+    /**
+     * Obtains position of slab in ring
+     *
+     * @param slabSequence sequence number of slab
+     * @return index of slab
+     */
+    private int getRing(long slabSequence) {
+        return (int) (slabSequence % slabCount);
+    }
+
+    /**
+     * Obtains offset of entry in slab
+     *
+     * @param handle handle of entry
+     * @return offset of entry
+     */
+    private int getOffset(long handle) {
+        return (int) handle;
+    }
+
+    /**
+     * Searches slot of key in index
+     *
+     * @param key any key
+     * @return index of slot or -1 if key is absent
+     */
+    private int findSlot(Object key) {
+        int mask = keys.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot] == key || key.equals(keys[slot])) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Puts handle of entry to index
+     * Handle of the same key is replaced
+     *
+     * @param key    any key
+     * @param handle handle of entry
+     */
+    private void putHandle(Object key, long handle) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            releaseHandle(handles[slot]);
+            handles[slot] = handle;
+            return;
+        }
+
+        if ((indexSize + 1) * 2 > keys.length) {
+            rehash();
+        }
+
+        insert(key, handle);
+    }
+
+    /**
+     * Inserts key to the first free slot
+     *
+     * @param key    any key
+     * @param handle handle of entry
+     */
+    private void insert(Object key, long handle) {
+        int mask = keys.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        handles[slot] = handle;
+        indexSize++;
+    }
+
+    /**
+     * Removes slot and shifts following slots of the same cluster back,
+     * so index never contains deleted markers
+     *
+     * @param slot index of slot
+     */
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != null) {
+            int ideal = spread(keys[next].hashCode()) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                handles[hole] = handles[next];
+                hole = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        keys[hole] = null;
+        handles[hole] = 0;
+        indexSize--;
+    }
+
+    /**
+     * Rebuilds index without entries of reused slabs
+     * Capacity of index is chosen by count of remaining entries
+     */
+    private void rehash() {
+        Object[] oldKeys = keys;
+        long[] oldHandles = handles;
+
+        int liveCount = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != null && isValid(oldHandles[slot])) {
+                liveCount++;
+            }
+        }
+
+        int capacity = INITIAL_INDEX_CAPACITY;
+        while (capacity < (liveCount + 1) * 4) {
+            capacity <<= 1;
+        }
+
+        keys = new Object[capacity];
+        handles = new long[capacity];
+        indexSize = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != null && isValid(oldHandles[slot])) {
+                insert(oldKeys[slot], oldHandles[slot]);
+            }
+        }
+    }
+
+    /**
+     * Spreads bits of hash code for index with power of two capacity
+     *
+     * @param hashCode hash code of key
+     * @return spread hash
+     */
+    private static int spread(int hashCode) {
+        int hash = hashCode * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compresses byte code
+     *
+     * @param byteCode byte code of class
+     * @return compressed byte code or null if byte code can't be compressed
+     */
+    private static byte[] compress(byte[] byteCode) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(byteCode);
+        deflater.finish();
+
+        byte[] buffer = new byte[byteCode.length];
+        int length = 0;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+
+        return deflater.finished() && length < byteCode.length ? Arrays.copyOf(buffer, length) : null;
+    }
+
+    /**
+     * Decompresses byte code
+     *
+     * @param compressedByteCode compressed byte code
+     * @param length             length of original byte code
+     * @return byte code or null if compressed byte code is damaged
+     */
+    private static byte[] decompress(byte[] compressedByteCode, int length) {
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(compressedByteCode);
+
+        byte[] byteCode = new byte[length];
+        int inflatedLength = 0;
+        try {
+            while (inflatedLength < length && !inflater.finished()) {
+                int count = inflater.inflate(byteCode, inflatedLength, length - inflatedLength);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+
+                inflatedLength += count;
+            }
+        } catch (DataFormatException exception) {
+            return null;
+        }
+
+        return inflatedLength == length ? byteCode : null;
+    }
+
+    /**
+     * Entry copied from slab, decompression is performed out of lock
+     */
+    private static class StoredByteCode {
+
+        private final byte[] byteCode;
+
+        private final int length;
+
+        private final boolean compressed;
+
+        private StoredByteCode(byte[] byteCode, int length, boolean compressed) {
+            this.byteCode = byteCode;
+            this.length = length;
+            this.compressed = compressed;
+        }
+
+        /**
+         * Obtains original byte code
+         *
+         * @return byte code or null if entry is damaged
+         */
+        private byte[] toByteCode() {
+            return compressed ? decompress(byteCode, length) : byteCode;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,572 @@
+package com.classparser.bytecode.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of decompiled code in memory mapped file which is shared by all local JVMs
+ * File contains header, open addressing index of entries and data segment,
+ * entries are appended to data segment, when segment is exhausted
+ * index and segment are cleared and filling is started again
+ * <p>
+ * Writers are coordinated by lock of header of file, so only one process
+ * writes to file at the same time, readers never take locks,
+ * lock is taken through channel which is opened for each write,
+ * so interruption of writing thread closes only its own channel,
+ * each entry contains full key and checksum of code, so entries which
+ * were overwritten by other process during reading are rejected
+ * Lookup works directly with mapped memory, decompiled code
+ * is copied to heap only for matched entry
+ * <p>
+ * File with invalid header is never truncated in place, because other processes
+ * may have it mapped, new file is formatted separately and replaces it
+ * If mapped file was replaced by other process, then writes to it are skipped
+ * <p>
+ * One instance is created for each file in JVM
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class SharedSourceCache {
+
+    private static final ConcurrentMap<Path, SharedSourceCache> INSTANCES = new ConcurrentHashMap<>();
+
+    private static final int MAGIC = 0x43505353;
+
+    private static final int ENTRY_MAGIC = 0x43505345;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int MAGIC_POSITION = 0;
+
+    private static final int VERSION_POSITION = 4;
+
+    private static final int SLOT_COUNT_POSITION = 8;
+
+    private static final int TAIL_POSITION = 16;
+
+    private static final int GENERATION_POSITION = 24;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int AVERAGE_ENTRY_SIZE = 4096;
+
+    private static final int MIN_SLOT_COUNT = 256;
+
+    private static final int MAX_PROBES = 8;
+
+    private static final int ENTRY_HEADER_SIZE = 4 + 8 + 8 + 8 + 8 + 4 + 4;
+
+    private static final long MIN_FILE_SIZE = 1024 * 1024;
+
+    private static final int MAX_OPEN_ATTEMPTS = 3;
+
+    private final Path file;
+
+    private final Object fileKey;
+
+    private final MappedByteBuffer buffer;
+
+    private final int slotCount;
+
+    private final int dataPosition;
+
+    private final int dataCapacity;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param file    path to shared file
+     * @param fileKey key of mapped file or null if file system hasn't file keys
+     * @param buffer  mapped and formatted file
+     */
+    private SharedSourceCache(Path file, Object fileKey, MappedByteBuffer buffer) {
+        this.file = file;
+        this.fileKey = fileKey;
+        this.buffer = buffer;
+        this.slotCount = buffer.getInt(SLOT_COUNT_POSITION);
+        this.dataPosition = HEADER_SIZE + slotCount * SLOT_SIZE;
+        this.dataCapacity = buffer.capacity() - dataPosition;
+    }
+
+    /**
+     * Obtains cache for shared file
+     * If file is already used by other process, then its size
+     * is taken from file and requested size is ignored
+     *
+     * @param file path to shared file
+     * @param size size of file in bytes which is used for creation of file
+     * @return shared cache instance
+     * @throws IOException if file can't be opened or mapped
+     */
+    public static SharedSourceCache getInstance(Path file, long size) throws IOException {
+        Path normalizedFile = file.toAbsolutePath().normalize();
+        SharedSourceCache cache = INSTANCES.get(normalizedFile);
+        if (cache != null) {
+            return cache;
+        }
+
+        synchronized (INSTANCES) {
+            cache = INSTANCES.get(normalizedFile);
+            if (cache == null) {
+                cache = open(normalizedFile, Math.max(MIN_FILE_SIZE, Math.min(size, Integer.MAX_VALUE)));
+                INSTANCES.put(normalizedFile, cache);
+            }
+
+            return cache;
+        }
+    }
+
+    /**
+     * Opens shared file and maps it to memory
+     * If existing file has invalid header, then it is replaced by new file
+     * and opening is repeated
+     * Channel is closed after mapping, mapped memory stays valid without it
+     *
+     * @param file path to shared file
+     * @param size size of file in bytes
+     * @return shared cache instance
+     * @throws IOException if file can't be opened or mapped
+     */
+    private static SharedSourceCache open(Path file, long size) throws IOException {
+        Path directory = file.getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        for (int attempt = 0; attempt < MAX_OPEN_ATTEMPTS; attempt++) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = map(channel, size);
+            }
+
+            if (buffer != null) {
+                return new SharedSourceCache(file, getFileKey(file), buffer);
+            }
+
+            replace(file, size);
+        }
+
+        throw new IOException("Shared file " + file + " has invalid format and can't be replaced");
+    }
+
+    /**
+     * Maps file to memory under lock of header
+     * Empty file was just created, so it is extended and formatted,
+     * file with valid header is mapped as is
+     *
+     * @param channel channel of file
+     * @param size    size of file in bytes which is used for formatting of empty file
+     * @return mapped file or null if file has invalid header
+     * @throws IOException if file can't be locked or mapped
+     */
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        FileLock lock = channel.lock(0, HEADER_SIZE, false);
+        try {
+            long fileSize = channel.size();
+            if (fileSize >= HEADER_SIZE && isFormatted(channel)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            }
+
+            if (fileSize == 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                format(buffer, size);
+                return buffer;
+            }
+
+            return null;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Replaces file which has invalid header by new formatted file
+     * New file is formatted under temporary name and atomically renamed,
+     * so processes which have mapped old file continue to work with it
+     * and never see partially formatted file
+     *
+     * @param file path to shared file
+     * @param size size of file in bytes
+     * @throws IOException if file can't be created or renamed
+     */
+    private static void replace(Path file, long size) throws IOException {
+        Path newFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(newFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                format(channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size);
+            }
+
+            Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(newFile);
+        }
+    }
+
+    /**
+     * Obtains key which identifies file in file system
+     *
+     * @param file path to file
+     * @return key of file or null if file system hasn't file keys
+     * @throws IOException if attributes of file can't be read
+     */
+    private static Object getFileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Opens channel of shared file for locking of header
+     *
+     * @return channel of file or null if mapped file was replaced by other process
+     * @throws IOException if file can't be opened
+     */
+    private FileChannel openChannel() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (fileKey == null || fileKey.equals(getFileKey(file))) {
+                return channel;
+            }
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+
+        channel.close();
+        return null;
+    }
+
+    /**
+     * Obtains path to shared file
+     *
+     * @return path to file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Searches decompiled code in shared file
+     *
+     * @param key key of decompiled code
+     * @return decompiled code or null if it is absent
+     */
+    public String get(SourceKey key) {
+        return find(key, getKeyHash(key), key.getFingerprint().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends decompiled code to shared file
+     * Errors are not rethrown, because cache never should break decompilation of class
+     * Code isn't written by interrupted thread, because its lock can't be taken
+     *
+     * @param key    key of decompiled code
+     * @param source decompiled code
+     */
+    public void put(SourceKey key, String source) {
+        byte[] fingerprint = key.getFingerprint().getBytes(StandardCharsets.UTF_8);
+        byte[] code = source.getBytes(StandardCharsets.UTF_8);
+        long entrySize = (long) ENTRY_HEADER_SIZE + fingerprint.length + code.length;
+        if (entrySize > dataCapacity / 4) {
+            return;
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        long keyHash = getKeyHash(key);
+        synchronized (this) {
+            try (FileChannel channel = openChannel()) {
+                if (channel == null) {
+                    return;
+                }
+
+                FileLock lock = channel.lock(0, HEADER_SIZE, false);
+                try {
+                    if (find(key, keyHash, fingerprint) != null) {
+                        return;
+                    }
+
+                    long tail = buffer.getLong(TAIL_POSITION);
+                    if (tail + entrySize > dataCapacity) {
+                        clear();
+                        tail = 0;
+                    }
+
+                    writeEntry((int) tail, key, fingerprint, code);
+                    writeSlot(keyHash, (int) tail, (int) entrySize);
+                    buffer.putLong(TAIL_POSITION, tail + entrySize);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException exception) {
+                System.err.println("Decompiled code can't be stored to shared cache " + file + ": " + exception);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of shared file
+     */
+    public void invalidateAll() {
+        synchronized (this) {
+            try (FileChannel channel = openChannel()) {
+                if (channel == null) {
+                    return;
+                }
+
+                FileLock lock = channel.lock(0, HEADER_SIZE, false);
+                try {
+                    clear();
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException exception) {
+                System.err.println("Shared cache " + file + " can't be cleared: " + exception);
+            }
+        }
+    }
+
+    /**
+     * Obtains count of times when data segment was exhausted and cleared
+     *
+     * @return generation of shared file
+     */
+    public long getGeneration() {
+        return buffer.getLong(GENERATION_POSITION);
+    }
+
+    /**
+     * Searches entry by probing of slots of index
+     *
+     * @param key         key of decompiled code
+     * @param keyHash     hash of key
+     * @param fingerprint fingerprint of configuration in UTF-8
+     * @return decompiled code or null if it is absent
+     */
+    private String find(SourceKey key, long keyHash, byte[] fingerprint) {
+        int firstSlot = getFirstSlot(keyHash);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slotPosition = getSlotPosition(firstSlot, probe);
+            long slotHash = buffer.getLong(slotPosition);
+            if (slotHash == 0) {
+                return null;
+            }
+
+            if (slotHash == keyHash) {
+                String source = readEntry(buffer.getInt(slotPosition + 8), buffer.getInt(slotPosition + 12), key, fingerprint);
+                if (source != null) {
+                    return source;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes slot of index for entry
+     * Free slot or slot of the same key is preferred, otherwise the first slot
+     * of probing sequence is replaced, hash is written the last,
+     * so readers never match slot before it is completely written
+     *
+     * @param keyHash       hash of key
+     * @param entryPosition position of entry in data segment
+     * @param entrySize     size of entry
+     */
+    private void writeSlot(long keyHash, int entryPosition, int entrySize) {
+        int firstSlot = getFirstSlot(keyHash);
+        int slotPosition = getSlotPosition(firstSlot, 0);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int probePosition = getSlotPosition(firstSlot, probe);
+            long slotHash = buffer.getLong(probePosition);
+            if (slotHash == 0 || slotHash == keyHash) {
+                slotPosition = probePosition;
+                break;
+            }
+        }
+
+        buffer.putLong(slotPosition, 0);
+        buffer.putInt(slotPosition + 8, entryPosition);
+        buffer.putInt(slotPosition + 12, entrySize);
+        buffer.putLong(slotPosition, keyHash);
+    }
+
+    /**
+     * Writes entry to data segment
+     *
+     * @param entryPosition position of entry in data segment
+     * @param key           key of decompiled code
+     * @param fingerprint   fingerprint of configuration in UTF-8
+     * @param code          decompiled code in UTF-8
+     */
+    private void writeEntry(int entryPosition, SourceKey key, byte[] fingerprint, byte[] code) {
+        ByteBuffer entry = buffer.duplicate();
+        entry.position(dataPosition + entryPosition);
+        entry.putInt(ENTRY_MAGIC)
+             .putLong(key.getByteCodeHash())
+             .putLong(key.getInnerClassesHash())
+             .putLong(key.getLength())
+             .putLong(SourceKey.hash(code))
+             .putInt(fingerprint.length)
+             .putInt(code.length)
+             .put(fingerprint)
+             .put(code);
+    }
+
+    /**
+     * Reads entry from data segment and checks it
+     * Only code of entry which belongs to key and has correct checksum is copied to heap
+     *
+     * @param entryPosition position of entry in data segment
+     * @param entrySize     size of entry
+     * @param key           key of decompiled code
+     * @param fingerprint   fingerprint of configuration in UTF-8
+     * @return decompiled code or null if entry is damaged or belongs to other key
+     */
+    private String readEntry(int entryPosition, int entrySize, SourceKey key, byte[] fingerprint) {
+        if (entryPosition < 0 || entrySize < ENTRY_HEADER_SIZE || entrySize > dataCapacity - entryPosition) {
+            return null;
+        }
+
+        ByteBuffer entry = buffer.duplicate();
+        entry.position(dataPosition + entryPosition);
+        entry.limit(dataPosition + entryPosition + entrySize);
+        if (entry.getInt() != ENTRY_MAGIC
+                || entry.getLong() != key.getByteCodeHash()
+                || entry.getLong() != key.getInnerClassesHash()
+                || entry.getLong() != key.getLength()) {
+            return null;
+        }
+
+        long codeHash = entry.getLong();
+        int fingerprintLength = entry.getInt();
+        int codeLength = entry.getInt();
+        if (fingerprintLength != fingerprint.length || codeLength < 0 || entry.remaining() != fingerprintLength + codeLength) {
+            return null;
+        }
+
+        for (byte value : fingerprint) {
+            if (entry.get() != value) {
+                return null;
+            }
+        }
+
+        byte[] code = new byte[codeLength];
+        entry.get(code);
+        if (SourceKey.hash(code) != codeHash) {
+            return null;
+        }
+
+        return new String(code, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Clears index and data segment
+     * Generation is increased, so other processes can notice clearing
+     */
+    private void clear() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            buffer.putLong(HEADER_SIZE + slot * SLOT_SIZE, 0);
+        }
+
+        buffer.putLong(TAIL_POSITION, 0);
+        buffer.putLong(GENERATION_POSITION, buffer.getLong(GENERATION_POSITION) + 1);
+    }
+
+    /**
+     * Computes hash of key for index
+     *
+     * @param key key of decompiled code
+     * @return hash of key which is never zero
+     */
+    private long getKeyHash(SourceKey key) {
+        long hash = SourceKey.hash(key.getFingerprint().getBytes(StandardCharsets.UTF_8));
+        hash = hash * 31 + key.getByteCodeHash();
+        hash = hash * 31 + key.getInnerClassesHash();
+        hash = hash * 31 + key.getLength();
+
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Obtains first slot of probing sequence
+     *
+     * @param keyHash hash of key
+     * @return index of slot
+     */
+    private int getFirstSlot(long keyHash) {
+        return (int) Long.remainderUnsigned(keyHash ^ (keyHash >>> 32), slotCount);
+    }
+
+    /**
+     * Obtains position of slot in file
+     *
+     * @param firstSlot first slot of probing sequence
+     * @param probe     number of probe
+     * @return position of slot
+     */
+    private int getSlotPosition(int firstSlot, int probe) {
+        return HEADER_SIZE + ((firstSlot + probe) % slotCount) * SLOT_SIZE;
+    }
+
+    /**
+     * Checks if file was already formatted by this or other process
+     *
+     * @param channel channel of file
+     * @return true if header of file is valid
+     * @throws IOException if header can't be read
+     */
+    private static boolean isFormatted(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        }
+        header.flip();
+
+        if (header.remaining() < HEADER_SIZE
+                || header.getInt(MAGIC_POSITION) != MAGIC
+                || header.getInt(VERSION_POSITION) != FORMAT_VERSION) {
+            return false;
+        }
+
+        long slotCount = header.getInt(SLOT_COUNT_POSITION);
+        long dataCapacity = channel.size() - HEADER_SIZE - slotCount * SLOT_SIZE;
+        long tail = header.getLong(TAIL_POSITION);
+        return slotCount >= MIN_SLOT_COUNT && channel.size() <= Integer.MAX_VALUE
+                && dataCapacity > 0 && tail >= 0 && tail <= dataCapacity;
+    }
+
+    /**
+     * Writes header of new file
+     * New file is filled by zeros, so index is empty
+     * Magic is written the last, so file is never recognized as formatted before
+     *
+     * @param buffer mapped file
+     * @param size   size of file in bytes
+     */
+    private static void format(MappedByteBuffer buffer, long size) {
+        int slotCount = (int) Math.max(MIN_SLOT_COUNT, size / AVERAGE_ENTRY_SIZE);
+
+        buffer.putInt(VERSION_POSITION, FORMAT_VERSION);
+        buffer.putInt(SLOT_COUNT_POSITION, slotCount);
+        buffer.putLong(TAIL_POSITION, 0);
+        buffer.putLong(GENERATION_POSITION, 0);
+        buffer.putInt(MAGIC_POSITION, MAGIC);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,622 @@
+package com.classparser.bytecode.cache;
+
+import com.classparser.bytecode.api.Decompiler;
+import com.classparser.bytecode.configuration.ConfigurationManager;
+import com.classparser.bytecode.decompile.racing.RacingDecompiler;
+import com.classparser.bytecode.exception.decompile.DecompilationException;
+import com.classparser.bytecode.exception.decompile.DecompilationTimeoutException;
+import com.classparser.bytecode.utils.Deadline;
+import com.classparser.configuration.Configuration;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of decompiled code of classes
+ * Entries are keyed by {@link SourceKey} and evicted by count of classes
+ * and by total length of decompiled code
+ * If shared or disk caches are enabled, then entries are also stored to
+ * {@link SharedSourceCache} and {@link DiskSourceCache}, which are searched
+ * in this order if entry is absent in memory
+ * <p>
+ * Cache survives reload of configuration, entries of previous configuration
+ * are not matched, because fingerprint of configuration is part of key
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class SourceCache {
+
+    private static final int MAX_VALUE_DEPTH = 4;
+
+    private final ConfigurationManager configurationManager;
+
+    private final ConcurrentMap<SourceKey, CompletableFuture<String>> decompilations;
+
+    private final Lock lock;
+
+    private volatile Sources sources;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param configurationManager configuration manager instance
+     */
+    public SourceCache(ConfigurationManager configurationManager) {
+        this.configurationManager = configurationManager;
+        this.decompilations = new ConcurrentHashMap<>();
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Checks if decompiled code should be cached
+     *
+     * @return true if cache is enabled
+     */
+    public boolean isEnabled() {
+        return configurationManager.isEnableSourceCache();
+    }
+
+    /**
+     * Creates key of decompiled code for current configuration
+     *
+     * @param decompiler             current decompiler
+     * @param byteCode               byte code of class
+     * @param byteCodeOfInnerClasses byte code of inner classes
+     * @return key of decompiled code
+     */
+    public SourceKey createKey(Decompiler decompiler, byte[] byteCode, Collection<byte[]> byteCodeOfInnerClasses) {
+        return new SourceKey(getSources().getFingerprint(decompiler), byteCode, byteCodeOfInnerClasses);
+    }
+
+    /**
+     * Obtains cached decompiled code
+     *
+     * @param key key of decompiled code
+     * @return decompiled code or null if it is absent
+     */
+    public String get(SourceKey key) {
+        Sources currentSources = getSources();
+        String source = currentSources.entries.get(key);
+        if (source != null) {
+            return source;
+        }
+
+        if (currentSources.shared != null) {
+            source = currentSources.shared.get(key);
+        }
+
+        if (source == null && currentSources.disk != null) {
+            source = currentSources.disk.get(key);
+            if (source != null && currentSources.shared != null) {
+                currentSources.shared.put(key, source);
+            }
+        }
+
+        if (source != null) {
+            currentSources.entries.put(key, source);
+        }
+
+        return source;
+    }
+
+    /**
+     * Puts decompiled code to cache
+     *
+     * @param key    key of decompiled code
+     * @param source decompiled code
+     */
+    public void put(SourceKey key, String source) {
+        if (source != null) {
+            Sources currentSources = getSources();
+            currentSources.entries.put(key, source);
+            if (currentSources.shared != null) {
+                currentSources.shared.put(key, source);
+            }
+
+            if (currentSources.disk != null) {
+                currentSources.disk.put(key, source);
+            }
+        }
+    }
+
+    /**
+     * Obtains cached decompiled code or decompiles it
+     * Concurrent requests of the same key wait for one decompilation
+     * If decompilation was stopped by {@link Deadline} or interruption of its thread,
+     * then waiting requests aren't failed, they repeat decompilation by themselves
+     * <p>
+     * Decompilation can return null if its code shouldn't be cached, such code
+     * isn't passed to waiting requests too, each of them runs own decompilation
+     *
+     * @param key           key of decompiled code
+     * @param decompilation decompilation of class
+     * @return decompiled code or null if decompilation returned null
+     */
+    public String computeIfAbsent(SourceKey key, Supplier<String> decompilation) {
+        while (true) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            CompletableFuture<String> runningDecompilation = decompilations.putIfAbsent(key, future);
+            if (runningDecompilation == null) {
+                return decompile(key, decompilation, future);
+            }
+
+            if (!runningDecompilation.isCancelled()) {
+                String source = await(runningDecompilation);
+                if (source != null) {
+                    return source;
+                }
+
+                if (!runningDecompilation.isCancelled()) {
+                    return decompilation.get();
+                }
+            }
+
+            decompilations.remove(key, runningDecompilation);
+        }
+    }
+
+    /**
+     * Removes all cached decompiled code
+     * Entries of shared cache and files of disk cache are removed too
+     */
+    public void invalidateAll() {
+        Sources currentSources = getSources();
+        currentSources.entries.clear();
+        if (currentSources.shared != null) {
+            currentSources.shared.invalidateAll();
+        }
+
+        if (currentSources.disk != null) {
+            currentSources.disk.invalidateAll();
+        }
+    }
+
+    /**
+     * Obtains count of requests were served from cache
+     *
+     * @return count of cache hits
+     */
+    public long getHitCount() {
+        return getSources().entries.getHitCount();
+    }
+
+    /**
+     * Obtains count of requests were not found in cache
+     *
+     * @return count of cache misses
+     */
+    public long getMissCount() {
+        return getSources().entries.getMissCount();
+    }
+
+    /**
+     * Obtains count of entries were evicted by size or weight limits
+     *
+     * @return count of evictions
+     */
+    public long getEvictionCount() {
+        return getSources().entries.getEvictionCount();
+    }
+
+    /**
+     * Obtains count of cached classes
+     *
+     * @return count of entries in cache
+     */
+    public int size() {
+        return getSources().entries.size();
+    }
+
+    /**
+     * Decompiles class in current thread and passes result to waiting requests
+     * Code isn't cached if {@link Deadline} of current thread is expired,
+     * because decompilers can degrade code when deadline is close
+     *
+     * @param key           key of decompiled code
+     * @param decompilation decompilation of class
+     * @param future        future of decompilation for waiting requests
+     * @return decompiled code
+     */
+    private String decompile(SourceKey key, Supplier<String> decompilation, CompletableFuture<String> future) {
+        try {
+            String source = get(key);
+            if (source == null) {
+                source = decompilation.get();
+                if (!isDeadlineExpired()) {
+                    put(key, source);
+                }
+            }
+
+            future.complete(source);
+            return source;
+        } catch (RuntimeException | Error exception) {
+            if (isStoppedDecompilation(exception)) {
+                future.cancel(false);
+            } else {
+                future.completeExceptionally(exception);
+            }
+
+            throw exception;
+        } finally {
+            decompilations.remove(key, future);
+        }
+    }
+
+    /**
+     * Checks if deadline of current thread is expired
+     *
+     * @return true if current thread has expired deadline
+     */
+    private boolean isDeadlineExpired() {
+        Deadline deadline = Deadline.current();
+        return deadline != null && deadline.isExpired();
+    }
+
+    /**
+     * Checks if decompilation of current thread failed because it was stopped,
+     * such failure belongs only to current request
+     *
+     * @param exception failure of decompilation
+     * @return true if deadline of current thread is expired or thread was interrupted
+     */
+    private boolean isStoppedDecompilation(Throwable exception) {
+        return exception instanceof DecompilationTimeoutException
+                || isDeadlineExpired()
+                || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Waits decompilation of the same key by other thread
+     * If current thread has {@link Deadline}, then waiting is bounded by it
+     *
+     * @param decompilation running decompilation
+     * @return decompiled code or null if decompilation was stopped
+     */
+    private String await(CompletableFuture<String> decompilation) {
+        Deadline deadline = Deadline.current();
+        try {
+            if (deadline != null) {
+                return decompilation.get(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+
+            return decompilation.get();
+        } catch (CancellationException exception) {
+            return null;
+        } catch (TimeoutException exception) {
+            throw new DecompilationTimeoutException("Decompilation of the same class by other thread wasn't completed in "
+                                                    + deadline.getTimeout(TimeUnit.MILLISECONDS) + " ms", exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new DecompilationTimeoutException("Waiting of decompilation was interrupted", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new DecompilationException("Decompilation was failed", cause);
+        }
+    }
+
+    /**
+     * Obtains entries for current configuration
+     * Entries and disk cache are recreated only if their limits were changed,
+     * shared cache is opened once for each file,
+     * fingerprint of configuration is computed again after each reload
+     *
+     * @return cached entries
+     */
+    private Sources getSources() {
+        long epoch = configurationManager.getConfigurationEpoch();
+
+        Sources current = sources;
+        if (current == null || current.epoch != epoch) {
+            lock.lock();
+            try {
+                current = sources;
+                if (current == null || current.epoch != epoch) {
+                    int maxSize = configurationManager.getSourceCacheMaxSize();
+                    long maxWeight = configurationManager.getSourceCacheMaxWeight();
+
+                    LruCache<SourceKey, String> entries;
+                    if (current != null && current.maxSize == maxSize && current.maxWeight == maxWeight) {
+                        entries = current.entries;
+                    } else {
+                        entries = new LruCache<>(maxSize, maxWeight, String::length);
+                    }
+
+                    current = new Sources(epoch, maxSize, maxWeight, entries, getSharedCache(), getDiskCache(current));
+                    sources = current;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Obtains shared cache for current configuration
+     * If shared file can't be opened, then shared cache isn't used
+     *
+     * @return shared cache or null if it is disabled
+     */
+    private SharedSourceCache getSharedCache() {
+        if (!configurationManager.isEnableSharedSourceCache()) {
+            return null;
+        }
+
+        Path file = Paths.get(configurationManager.getSharedSourceCacheFile());
+        try {
+            return SharedSourceCache.getInstance(file, configurationManager.getSharedSourceCacheSize());
+        } catch (IOException | RuntimeException exception) {
+            System.err.println("Shared cache " + file + " can't be opened: " + exception);
+            return null;
+        }
+    }
+
+    /**
+     * Obtains disk cache for current configuration
+     *
+     * @param current entries of previous configuration
+     * @return disk cache or null if it is disabled
+     */
+    private DiskSourceCache getDiskCache(Sources current) {
+        if (!configurationManager.isEnableDiskSourceCache()) {
+            return null;
+        }
+
+        Path directory = Paths.get(configurationManager.getDirectoryForSourceCache()).toAbsolutePath();
+        long maxWeight = configurationManager.getDiskSourceCacheMaxWeight();
+        if (current != null && current.disk != null
+                && current.disk.getDirectory().equals(directory)
+                && current.disk.getMaxWeight() == maxWeight) {
+            return current.disk;
+        }
+
+        return new DiskSourceCache(directory, maxWeight);
+    }
+
+    /**
+     * Cache entries with fingerprint of configuration epoch
+     */
+    private class Sources {
+
+        private final long epoch;
+
+        private final int maxSize;
+
+        private final long maxWeight;
+
+        private final LruCache<SourceKey, String> entries;
+
+        private final SharedSourceCache shared;
+
+        private final DiskSourceCache disk;
+
+        private volatile String fingerprint;
+
+        private Sources(long epoch, int maxSize, long maxWeight, LruCache<SourceKey, String> entries,
+                        SharedSourceCache shared, DiskSourceCache disk) {
+            this.epoch = epoch;
+            this.maxSize = maxSize;
+            this.maxWeight = maxWeight;
+            this.entries = entries;
+            this.shared = shared;
+            this.disk = disk;
+        }
+
+        /**
+         * Obtains fingerprint of decompiler and its configuration
+         * Fingerprint is computed once for configuration epoch
+         *
+         * @param decompiler current decompiler
+         * @return fingerprint string
+         */
+        private String getFingerprint(Decompiler decompiler) {
+            String currentFingerprint = fingerprint;
+            if (currentFingerprint == null) {
+                currentFingerprint = createFingerprint(decompiler);
+                fingerprint = currentFingerprint;
+            }
+
+            return currentFingerprint;
+        }
+    }
+
+    /**
+     * Creates fingerprint of decompiler and its custom configuration
+     * Fingerprint contains version of decompiler, so entries persisted by
+     * other version of decompiler library are not matched
+     * Fingerprint of {@link RacingDecompiler} contains all its decompilers
+     * Options are sorted by keys, values are encoded by their content,
+     * so fingerprint is the same in all runs of application
+     *
+     * @param decompiler current decompiler
+     * @return fingerprint string
+     */
+    private String createFingerprint(Decompiler decompiler) {
+        StringBuilder fingerprint = new StringBuilder();
+        appendDecompiler(fingerprint, decompiler);
+        if (decompiler instanceof RacingDecompiler) {
+            for (Decompiler racingDecompiler : ((RacingDecompiler) decompiler).getDecompilers()) {
+                fingerprint.append(',');
+                appendDecompiler(fingerprint, racingDecompiler);
+            }
+        }
+
+        Configuration configuration = configurationManager.getCustomDecompilerConfiguration();
+        Map<String, Object> options = configuration != null ? configuration.getConfiguration() : null;
+        if (options != null) {
+            for (Map.Entry<String, Object> option : new TreeMap<>(options).entrySet()) {
+                fingerprint.append(';').append(option.getKey()).append('=');
+                appendValue(fingerprint, option.getValue(), 0);
+            }
+        }
+
+        return fingerprint.toString();
+    }
+
+    /**
+     * Appends name and version of decompiler
+     *
+     * @param fingerprint fingerprint string builder
+     * @param decompiler  any decompiler
+     */
+    private void appendDecompiler(StringBuilder fingerprint, Decompiler decompiler) {
+        fingerprint.append(decompiler.getClass().getName()).append(':').append(decompiler.getVersion());
+    }
+
+    /**
+     * Appends fingerprint of option value
+     * Elements of sets and entries of maps are sorted by their fingerprints,
+     * because order of their iteration may differ between runs,
+     * objects without overridden {@link Object#toString()} are encoded by their fields
+     *
+     * @param fingerprint fingerprint string builder
+     * @param value       value of option
+     * @param depth       depth of value in option
+     */
+    private void appendValue(StringBuilder fingerprint, Object value, int depth) {
+        if (value == null || value instanceof CharSequence || value instanceof Number
+                || value instanceof Boolean || value instanceof Character) {
+            fingerprint.append(value);
+        } else if (value instanceof Enum) {
+            fingerprint.append(((Enum<?>) value).getDeclaringClass().getName()).append('.').append(((Enum<?>) value).name());
+        } else if (value instanceof Class) {
+            fingerprint.append(((Class<?>) value).getName());
+        } else if (depth >= MAX_VALUE_DEPTH) {
+            fingerprint.append(value.getClass().getName()).append("@?");
+        } else if (value instanceof Set) {
+            appendElements(fingerprint, '{', getValues((Set<?>) value, depth), true, '}');
+        } else if (value instanceof Collection) {
+            appendElements(fingerprint, '[', getValues((Collection<?>) value, depth), false, ']');
+        } else if (value instanceof Map) {
+            List<String> entries = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                entries.add(getValue(entry.getKey(), depth) + '=' + getValue(entry.getValue(), depth));
+            }
+            appendElements(fingerprint, '{', entries, true, '}');
+        } else if (value.getClass().isArray()) {
+            List<String> elements = new ArrayList<>();
+            for (int index = 0; index < Array.getLength(value); index++) {
+                elements.add(getValue(Array.get(value, index), depth));
+            }
+            appendElements(fingerprint, '[', elements, false, ']');
+        } else {
+            appendObject(fingerprint, value, depth);
+        }
+    }
+
+    /**
+     * Appends fingerprint of object
+     * If class of object overrides {@link Object#toString()}, then its string is used,
+     * otherwise fields of object are appended in order of their names
+     *
+     * @param fingerprint fingerprint string builder
+     * @param value       any object
+     * @param depth       depth of value in option
+     */
+    private void appendObject(StringBuilder fingerprint, Object value, int depth) {
+        Class<?> type = value.getClass();
+        fingerprint.append(type.getName());
+        try {
+            if (type.getMethod("toString").getDeclaringClass() != Object.class) {
+                fingerprint.append('(').append(value).append(')');
+                return;
+            }
+
+            Map<String, String> fields = new TreeMap<>();
+            for (Class<?> currentType = type; currentType != Object.class; currentType = currentType.getSuperclass()) {
+                for (Field field : currentType.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.put(currentType.getName() + '.' + field.getName(), getValue(field.get(value), depth));
+                    }
+                }
+            }
+
+            fingerprint.append(fields);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            fingerprint.append('@').append(System.identityHashCode(value));
+        }
+    }
+
+    /**
+     * Obtains fingerprints of elements of collection
+     *
+     * @param values collection of values
+     * @param depth  depth of collection in option
+     * @return list of fingerprints in order of collection
+     */
+    private List<String> getValues(Collection<?> values, int depth) {
+        List<String> elements = new ArrayList<>();
+        for (Object element : values) {
+            elements.add(getValue(element, depth));
+        }
+
+        return elements;
+    }
+
+    /**
+     * Obtains fingerprint of nested value
+     *
+     * @param value nested value
+     * @param depth depth of value owner in option
+     * @return fingerprint of value
+     */
+    private String getValue(Object value, int depth) {
+        StringBuilder fingerprint = new StringBuilder();
+        appendValue(fingerprint, value, depth + 1);
+        return fingerprint.toString();
+    }
+
+    /**
+     * Appends fingerprints of elements
+     *
+     * @param fingerprint fingerprint string builder
+     * @param open        open bracket
+     * @param elements    fingerprints of elements
+     * @param isSorted    true if elements should be sorted
+     * @param close       close bracket
+     */
+    private void appendElements(StringBuilder fingerprint, char open, List<String> elements,
+                                boolean isSorted, char close) {
+        if (isSorted) {
+            Collections.sort(elements);
+        }
+
+        fingerprint.append(open);
+        for (String element : elements) {
+            fingerprint.append(element).append(',');
+        }
+        fingerprint.append(close);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.classparser.bytecode.cache;
+
+import java.util.Collection;
+
+/**
+ * Key of decompiled code in {@link SourceCache}
+ * Key is built from fast hashes of byte code of class and its inner classes
+ * and fingerprint of decompiler with its configuration,
+ * so key never depends on class instance or class loader
+ * <p>
+ * This class is immutable
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public final class SourceKey {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String fingerprint;
+
+    private final long byteCodeHash;
+
+    private final long innerClassesHash;
+
+    private final long length;
+
+    private final int hash;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param fingerprint            fingerprint of decompiler and its configuration
+     * @param byteCode               byte code of class
+     * @param byteCodeOfInnerClasses byte code of inner classes
+     */
+    SourceKey(String fingerprint, byte[] byteCode, Collection<byte[]> byteCodeOfInnerClasses) {
+        long innerHash = FNV_OFFSET_BASIS;
+        long totalLength = byteCode.length;
+        for (byte[] innerClass : byteCodeOfInnerClasses) {
+            innerHash = innerHash * 31 + hash(innerClass);
+            totalLength += innerClass.length;
+        }
+
+        this.fingerprint = fingerprint;
+        this.byteCodeHash = hash(byteCode);
+        this.innerClassesHash = innerHash;
+        this.length = totalLength;
+        this.hash = 31 * fingerprint.hashCode() + Long.hashCode(byteCodeHash ^ innerClassesHash);
+    }
+
+    /**
+     * Obtains fingerprint of decompiler and its configuration
+     *
+     * @return fingerprint string
+     */
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Obtains hash of byte code of class
+     *
+     * @return hash of byte code
+     */
+    long getByteCodeHash() {
+        return byteCodeHash;
+    }
+
+    /**
+     * Obtains combined hash of byte code of inner classes
+     *
+     * @return hash of inner classes
+     */
+    long getInnerClassesHash() {
+        return innerClassesHash;
+    }
+
+    /**
+     * Obtains total length of byte code of class and its inner classes
+     *
+     * @return length of byte code
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * Computes 64-bit FNV-1a hash of byte code
+     * Hash is also used by adapters of decompilers as key of byte code
+     *
+     * @param byteCode byte code of class
+     * @return hash of byte code
+     */
+    public static long hash(byte[] byteCode) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte value : byteCode) {
+            hash ^= value & 0xFF;
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+
+        if (object == null || getClass() != object.getClass()) {
+            return false;
+        }
+
+        SourceKey that = (SourceKey) object;
+        return byteCodeHash == that.byteCodeHash
+                && innerClassesHash == that.innerClassesHash
+                && length == that.length
+                && fingerprint.equals(that.fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.classparser.bytecode.collector;
+
+import com.classparser.bytecode.api.ByteCodeCollector;
+import com.classparser.bytecode.configuration.ConfigurationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registry of byte code collectors are loaded by the {@link ServiceLoader}
+ * Collectors are resolved only once for configuration manager and chain
+ * of enabled collectors is rebuilt only if configuration epoch was changed
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class ByteCodeCollectorRegistry {
+
+    private final ConfigurationManager configurationManager;
+
+    private final Lock lock;
+
+    private volatile List<ByteCodeCollector> loadedCollectors;
+
+    private volatile CollectorsChain collectorsChain;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param configurationManager configuration manager instance
+     */
+    public ByteCodeCollectorRegistry(ConfigurationManager configurationManager) {
+        this.configurationManager = configurationManager;
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Obtains sorted chain of enabled collectors for current configuration
+     * Chain will be rebuilt only after configuration was reloaded
+     *
+     * @return list contains a chain of enabled collectors
+     */
+    public List<ByteCodeCollector> getCollectors() {
+        long epoch = configurationManager.getConfigurationEpoch();
+
+        CollectorsChain chain = collectorsChain;
+        if (chain == null || chain.epoch != epoch) {
+            lock.lock();
+            try {
+                chain = collectorsChain;
+                if (chain == null || chain.epoch != epoch) {
+                    chain = new CollectorsChain(epoch, getEnabledCollectors());
+                    collectorsChain = chain;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return chain.collectors;
+    }
+
+    /**
+     * Filters loaded collectors by current configuration
+     *
+     * @return unmodifiable list of enabled collectors
+     */
+    private List<ByteCodeCollector> getEnabledCollectors() {
+        List<ByteCodeCollector> collectors = new ArrayList<>();
+
+        for (ByteCodeCollector collector : getLoadedCollectors()) {
+            if (collector.isEnabled()) {
+                collectors.add(collector);
+            }
+        }
+
+        return Collections.unmodifiableList(collectors);
+    }
+
+    /**
+     * Eager loads all collectors uses the {@link ServiceLoader}
+     * Loading performs only once and result is sorted by collectors order
+     * 1. Jar index collector
+     * 2. Run-time image collector
+     * 3. Class file collector
+     * 4. Dumper collector
+     * 5. Instrumentation collector
+     *
+     * @return sorted list of all collectors
+     */
+    private List<ByteCodeCollector> getLoadedCollectors() {
+        List<ByteCodeCollector> collectors = loadedCollectors;
+        if (collectors == null) {
+            collectors = new ArrayList<>();
+
+            ServiceLoader<ByteCodeCollector> load = ServiceLoader.load(ByteCodeCollector.class);
+            for (ByteCodeCollector bytecodeCollector : load) {
+                bytecodeCollector.setConfigurationManager(configurationManager);
+                collectors.add(bytecodeCollector);
+            }
+
+            Collections.sort(collectors);
+            loadedCollectors = collectors;
+        }
+
+        return collectors;
+    }
+
+    /**
+     * Immutable snapshot of enabled collectors for any configuration epoch
+     */
+    private static class CollectorsChain {
+
+        private final long epoch;
+
+        private final List<ByteCodeCollector> collectors;
+
+        private CollectorsChain(long epoch, List<ByteCodeCollector> collectors) {
+            this.epoch = epoch;
+            this.collectors = collectors;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.classparser.bytecode.collector;
+
+import com.classparser.bytecode.api.ByteCodeCollector;
+import com.classparser.bytecode.cache.Cache;
+import com.classparser.bytecode.cache.LruCache;
+import com.classparser.bytecode.cache.OffHeapByteCodeCache;
+import com.classparser.bytecode.configuration.ConfigurationManager;
+import com.classparser.bytecode.utils.Deadline;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator of byte code collector which stores found byte code in bounded cache
+ * Cache is keyed by class identity and holds classes weakly, so cached entry
+ * never pins class loader and is dropped after class was unloaded
+ * Byte code is stored in java heap or compressed out of heap by {@link OffHeapByteCodeCache}
+ * <p>
+ * Collector is used for collecting of parsed classes and for loading of classes
+ * referenced by decompilers, so each request checks {@link Deadline} of current thread
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class CachingByteCodeCollector implements ByteCodeCollector {
+
+    private final ByteCodeCollector collector;
+
+    private volatile ConfigurationManager configurationManager;
+
+    private final ReferenceQueue<Class<?>> referenceQueue;
+
+    private final Lock lock;
+
+    private volatile ByteCodeCache byteCodeCache;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param collector            decorated byte code collector
+     * @param configurationManager configuration manager instance
+     */
+    public CachingByteCodeCollector(ByteCodeCollector collector, ConfigurationManager configurationManager) {
+        this.collector = collector;
+        this.configurationManager = configurationManager;
+        this.referenceQueue = new ReferenceQueue<>();
+        this.lock = new ReentrantLock();
+    }
+
+    @Override
+    public byte[] getByteCode(Class<?> clazz) {
+        if (clazz == null) {
+            return null;
+        }
+
+        Deadline.checkCurrent();
+
+        if (!configurationManager.isEnableByteCodeCache()) {
+            return collector.getByteCode(clazz);
+        }
+
+        Cache<ClassKey, byte[]> cache = getCache();
+        expungeUnloadedClasses(cache);
+
+        byte[] byteCode = cache.get(new ClassKey(clazz));
+        if (byteCode == null) {
+            byteCode = collector.getByteCode(clazz);
+            if (byteCode != null) {
+                cache.put(new ClassKey(clazz, referenceQueue), byteCode);
+            }
+        }
+
+        return byteCode;
+    }
+
+    @Override
+    public Map<Class<?>, byte[]> getByteCodes(Collection<Class<?>> classes) {
+        Deadline.checkCurrent();
+
+        if (!configurationManager.isEnableByteCodeCache()) {
+            return collector.getByteCodes(classes);
+        }
+
+        Cache<ClassKey, byte[]> cache = getCache();
+        expungeUnloadedClasses(cache);
+
+        Map<Class<?>, byte[]> byteCodes = new LinkedHashMap<>();
+        List<Class<?>> missedClasses = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            if (clazz != null) {
+                byte[] byteCode = cache.get(new ClassKey(clazz));
+                if (byteCode != null) {
+                    byteCodes.put(clazz, byteCode);
+                } else {
+                    missedClasses.add(clazz);
+                }
+            }
+        }
+
+        if (!missedClasses.isEmpty()) {
+            Map<Class<?>, byte[]> collectedByteCodes = collector.getByteCodes(missedClasses);
+            for (Map.Entry<Class<?>, byte[]> entry : collectedByteCodes.entrySet()) {
+                cache.put(new ClassKey(entry.getKey(), referenceQueue), entry.getValue());
+                byteCodes.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return byteCodes;
+    }
+
+    /**
+     * Caching collector is placed in front of all collectors
+     *
+     * @return the lowest order value
+     */
+    @Override
+    public int getOrder() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Caching collector always serves requests,
+     * if cache is disabled requests are passed to decorated collector
+     *
+     * @return true
+     */
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Replaces configuration manager of cache
+     * Cached byte code is dropped, because it was obtained by other configuration
+     *
+     * @param configurationManager configuration manager instance
+     */
+    @Override
+    public void setConfigurationManager(ConfigurationManager configurationManager) {
+        lock.lock();
+        try {
+            this.configurationManager = configurationManager;
+            this.byteCodeCache = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes cached byte code of class
+     * Should be called if class was redefined
+     *
+     * @param clazz any class
+     */
+    public void invalidate(Class<?> clazz) {
+        if (clazz != null) {
+            getCache().remove(new ClassKey(clazz));
+        }
+    }
+
+    /**
+     * Removes all cached byte code
+     */
+    public void invalidateAll() {
+        getCache().clear();
+    }
+
+    /**
+     * Obtains count of requests were served from cache
+     *
+     * @return count of cache hits
+     */
+    public long getHitCount() {
+        return getCache().getHitCount();
+    }
+
+    /**
+     * Obtains count of requests were delegated to collector
+     *
+     * @return count of cache misses
+     */
+    public long getMissCount() {
+        return getCache().getMissCount();
+    }
+
+    /**
+     * Obtains count of entries were evicted by size or weight limits
+     *
+     * @return count of evictions
+     */
+    public long getEvictionCount() {
+        return getCache().getEvictionCount();
+    }
+
+    /**
+     * Obtains count of cached classes
+     *
+     * @return count of entries in cache
+     */
+    public int size() {
+        return getCache().size();
+    }
+
+    /**
+     * Obtains cache for current configuration
+     * Cache is recreated after configuration reload, because
+     * limits, kind of storage or set of enabled collectors could be changed
+     *
+     * @return byte code cache
+     */
+    private Cache<ClassKey, byte[]> getCache() {
+        long epoch = configurationManager.getConfigurationEpoch();
+
+        ByteCodeCache cache = byteCodeCache;
+        if (cache == null || cache.epoch != epoch) {
+            lock.lock();
+            try {
+                cache = byteCodeCache;
+                if (cache == null || cache.epoch != epoch) {
+                    int maxSize = configurationManager.getByteCodeCacheMaxSize();
+                    long maxWeight = configurationManager.getByteCodeCacheMaxWeight();
+                    Cache<ClassKey, byte[]> entries;
+                    if (configurationManager.isEnableOffHeapByteCodeCache()) {
+                        entries = new OffHeapByteCodeCache<>(maxWeight);
+                    } else {
+                        entries = new LruCache<>(maxSize, maxWeight, byteCode -> byteCode.length);
+                    }
+
+                    cache = new ByteCodeCache(epoch, entries);
+                    byteCodeCache = cache;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return cache.entries;
+    }
+
+    /**
+     * Removes entries of classes which were collected by garbage collector
+     *
+     * @param cache current byte code cache
+     */
+    private void expungeUnloadedClasses(Cache<ClassKey, byte[]> cache) {
+        Reference<? extends Class<?>> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            cache.remove((ClassKey) reference);
+        }
+    }
+
+    /**
+     * Cache entries bounded with configuration epoch
+     */
+    private static class ByteCodeCache {
+
+        private final long epoch;
+
+        private final Cache<ClassKey, byte[]> entries;
+
+        private ByteCodeCache(long epoch, Cache<ClassKey, byte[]> entries) {
+            this.epoch = epoch;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Weak key of cache compares classes by identity
+     */
+    private static class ClassKey extends WeakReference<Class<?>> {
+
+        private final int hash;
+
+        /**
+         * Constructor for lookup key
+         *
+         * @param clazz any class
+         */
+        private ClassKey(Class<?> clazz) {
+            super(clazz);
+            this.hash = System.identityHashCode(clazz);
+        }
+
+        /**
+         * Constructor for stored key
+         *
+         * @param clazz any class
+         * @param queue queue for notification about class unloading
+         */
+        private ClassKey(Class<?> clazz, ReferenceQueue<Class<?>> queue) {
+            super(clazz, queue);
+            this.hash = System.identityHashCode(clazz);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+
+            if (object instanceof ClassKey) {
+                Class<?> clazz = get();
+                return clazz != null && clazz == ((ClassKey) object).get();
+            }
+
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -4,9 +4,11 @@ import com.classparser.bytecode.api.ByteCodeCollector;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ServiceLoader;
+import java.util.Map;
 
 /**
  * Byte code collector uses chain of responsibility pattern
@@ -60,31 +62,63 @@ public class ChainByteCodeCollector implements ByteCodeCollector {
         return null;
     }
 
+    @Override
+    public Map<Class<?>, byte[]> getByteCodes(Collection<Class<?>> classes) {
+        Map<Class<?>, byte[]> foundByteCodes = new LinkedHashMap<>();
+
+        List<Class<?>> remainingClasses = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            if (clazz != null) {
+                remainingClasses.add(clazz);
+            }
+        }
+
+        for (ByteCodeCollector collector : getCollectors()) {
+            if (remainingClasses.isEmpty()) {
+                break;
+            }
+
+            Map<Class<?>, byte[]> byteCodes = collector.getByteCodes(remainingClasses);
+            foundByteCodes.putAll(byteCodes);
+            remainingClasses.removeAll(byteCodes.keySet());
+        }
+
+        return orderByClasses(classes, foundByteCodes);
+    }
+
     /**
-     * Eager loads collectors to chain of calls
-     * 1. Class file collector
-     * 2. Dumper collector
-     * 3. Instrumentation collector
-     * <p>
-     * Collectors will be loaded use the {@link ServiceLoader}
+     * Reorders found byte code by order of requested classes
      *
-     * @return list contains a chain of collectors
+     * @param classes        requested classes
+     * @param foundByteCodes found byte code of classes
+     * @return ordered map of byte code
      */
-    private List<ByteCodeCollector> getCollectors() {
-        List<ByteCodeCollector> collectors = new ArrayList<>();
+    private Map<Class<?>, byte[]> orderByClasses(Collection<Class<?>> classes, Map<Class<?>, byte[]> foundByteCodes) {
+        Map<Class<?>, byte[]> byteCodes = new LinkedHashMap<>();
 
-        if (configurationManager != null) {
-            ServiceLoader<ByteCodeCollector> load = ServiceLoader.load(ByteCodeCollector.class);
-            for (ByteCodeCollector bytecodeCollector : load) {
-                bytecodeCollector.setConfigurationManager(configurationManager);
-                if (bytecodeCollector.isEnabled()) {
-                    collectors.add(bytecodeCollector);
-                }
+        for (Class<?> clazz : classes) {
+            byte[] byteCode = foundByteCodes.get(clazz);
+            if (byteCode != null) {
+                byteCodes.put(clazz, byteCode);
             }
+        }
+
+        return byteCodes;
+    }
 
-            Collections.sort(collectors);
+    /**
+     * Obtains collectors chain from registry of current configuration
+     * Registry resolves collectors only once and rebuilds the chain
+     * only after reloading of configuration
+     *
+     * @return list contains a chain of collectors
+     * @see ByteCodeCollectorRegistry
+     */
+    private List<ByteCodeCollector> getCollectors() {
+        if (configurationManager != null) {
+            return configurationManager.getCollectorRegistry().getCollectors();
         }
 
-        return collectors;
+        return Collections.emptyList();
     }
 }
\ No newline at end of file
@@ -8,7 +8,6 @@ import com.classparser.bytecode.utils.ClassNameConverter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
 
 /**
  * Collector uses java class path try obtain byte code from .class file
@@ -18,15 +17,16 @@ import java.net.URL;
  */
 public class ClassFileByteCodeCollector implements ByteCodeCollector {
 
-    private static final int BYTE_BUFFER_SIZE = 1024;
+    private static final int BYTE_BUFFER_SIZE = 8192;
 
     private ConfigurationManager configurationManager;
 
     @Override
     public byte[] getByteCode(Class<?> clazz) {
-        if (isClassFileExists(clazz)) {
-            try (InputStream inputStream = openInputStreamToFile(clazz)) {
-                return readBytesFromInputStream(inputStream);
+        InputStream inputStream = openInputStreamToFile(clazz);
+        if (inputStream != null) {
+            try (InputStream stream = inputStream) {
+                return readBytesFromInputStream(stream);
             } catch (IOException exception) {
                 throw new ByteCodeParserException("Can't open stream to file with class " + clazz, exception);
             }
@@ -37,7 +37,7 @@ public class ClassFileByteCodeCollector implements ByteCodeCollector {
 
     @Override
     public int getOrder() {
-        return 0;
+        return 100;
     }
 
     @Override
@@ -54,13 +54,19 @@ public class ClassFileByteCodeCollector implements ByteCodeCollector {
 
     /**
      * Open input stream to resource with byte code of selected class
+     * Resource is looked up only once
      *
      * @param clazz any class instance
-     * @return stream with byte code of class
+     * @return stream with byte code of class or null if class file is not found
      */
     private InputStream openInputStreamToFile(Class<?> clazz) {
         ClassLoader classLoader = getClassLoader(clazz);
-        return classLoader.getResourceAsStream(ClassNameConverter.toJarJavaClassName(clazz));
+
+        if (classLoader != null && clazz != null) {
+            return classLoader.getResourceAsStream(ClassNameConverter.toJarJavaClassName(clazz));
+        }
+
+        return null;
     }
 
     /**
@@ -70,10 +76,10 @@ public class ClassFileByteCodeCollector implements ByteCodeCollector {
      * @return byte array was read from input stream
      */
     private byte[] readBytesFromInputStream(InputStream stream) {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         int batchSize;
         byte[] data = new byte[BYTE_BUFFER_SIZE];
         try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(stream.available(), BYTE_BUFFER_SIZE));
             batchSize = stream.read(data, 0, data.length);
             while (batchSize != -1) {
                 buffer.write(data, 0, batchSize);
@@ -81,28 +87,10 @@ public class ClassFileByteCodeCollector implements ByteCodeCollector {
             }
 
             buffer.flush();
+            return buffer.toByteArray();
         } catch (IOException exception) {
             throw new ByteCodeParserException("Occurred problems at class loading!", exception);
         }
-
-        return buffer.toByteArray();
-    }
-
-    /**
-     * Checks is java class file exists in classpath
-     *
-     * @param clazz any class
-     * @return path to class or empty string if path is not found
-     */
-    private boolean isClassFileExists(Class<?> clazz) {
-        ClassLoader loader = getClassLoader(clazz);
-
-        if (loader != null && clazz != null) {
-            URL resource = loader.getResource(ClassNameConverter.toJarJavaClassName(clazz));
-            return resource != null;
-        }
-
-        return false;
     }
 
     /**
@@ -4,12 +4,14 @@ import com.classparser.bytecode.api.ByteCodeCollector;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.exception.ByteCodeParserException;
 import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.DumpDirectoryIndex;
 import com.classparser.exception.file.FileReadingException;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Dumper collector collects byte code of classes uses jdk dumper mechanism
@@ -19,6 +21,9 @@ import java.nio.file.attribute.BasicFileAttributes;
  * <code>-Djava.lang.invoke.MethodHandle.DUMP_CLASS_FILES=true</code>
  * <p>
  * These options should be enabled for working of this collector
+ * <p>
+ * Dump directory is indexed in memory and index is kept actual
+ * by the watch service, so lookup of class does not touch file system
  */
 public class DumperByteCodeCollector implements ByteCodeCollector {
 
@@ -28,10 +33,15 @@ public class DumperByteCodeCollector implements ByteCodeCollector {
 
     private static final String DUMP_PATH;
 
+    private static final DumpDirectoryIndex DUMP_DIRECTORY_INDEX;
+
+    private static final AtomicBoolean IS_PROPERTIES_CHECKED = new AtomicBoolean();
+
     private ConfigurationManager configurationManager;
 
     static {
         DUMP_PATH = System.getProperty("user.dir") + File.separatorChar + "DUMP_CLASS_FILES";
+        DUMP_DIRECTORY_INDEX = new DumpDirectoryIndex(Paths.get(DUMP_PATH));
         if (isDumpPropertiesEnabled()) {
             Runtime.getRuntime().addShutdownHook(new Thread(DumperByteCodeCollector::clearDumpDirectory));
         }
@@ -75,6 +85,15 @@ public class DumperByteCodeCollector implements ByteCodeCollector {
                         return FileVisitResult.CONTINUE;
                     }
 
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                        if (exc instanceof NoSuchFileException) {
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        throw exc;
+                    }
+
                     @Override
                     public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
                         deleteIgnoreAccess(dir);
@@ -105,21 +124,27 @@ public class DumperByteCodeCollector implements ByteCodeCollector {
         if (clazz != null) {
             checkingDumpingPropertyForEnabling();
 
-            String filePath = ClassNameConverter.toFileJavaClassName(clazz);
-            Path path = Paths.get(DUMP_PATH, filePath);
-            if (Files.exists(path)) {
-                try {
-                    return Files.readAllBytes(path);
-                } catch (IOException exception) {
-                    throw new FileReadingException("Can't read file: " + path.toString(), exception, path.toString());
-                }
+            String entryName = ClassNameConverter.toJarJavaClassName(clazz);
+            try {
+                return DUMP_DIRECTORY_INDEX.getByteCode(entryName);
+            } catch (IOException exception) {
+                String path = Paths.get(DUMP_PATH, ClassNameConverter.toFileJavaClassName(clazz)).toString();
+                throw new FileReadingException("Can't read file: " + path, exception, path);
             }
         }
 
         return null;
     }
 
+    /**
+     * Prints warnings about disabled dump properties
+     * Warnings are printed only once
+     */
     private void checkingDumpingPropertyForEnabling() {
+        if (IS_PROPERTIES_CHECKED.getAndSet(true)) {
+            return;
+        }
+
         boolean isMethodHandleDumpEnabled = Boolean.getBoolean(DUMP_MH_PROPERTY);
         if (!isMethodHandleDumpEnabled) {
             System.err.println("Please add property \"-D" + DUMP_MH_PROPERTY + "=true\"" +
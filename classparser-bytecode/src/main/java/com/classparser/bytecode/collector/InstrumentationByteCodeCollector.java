@@ -10,7 +10,13 @@ import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
 import java.lang.instrument.UnmodifiableClassException;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -18,48 +24,123 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * Collector uses {@link Instrumentation} instance try obtain byte code of class
  * This collector is unstable on java 8 and can drop JVM because of error in instrument lib
+ * <p>
+ * Each request registers capture slots keyed by class identity, so classes
+ * with same name from different class loaders never share byte code and
+ * retransformations are not initiated by collector leave nothing behind
+ * Slots of one class are guarded by striped locks, therefore concurrent
+ * requests for different classes never block each other
  *
  * @author Aleksei Makarov
  * @since 1.0.0
  */
 public class InstrumentationByteCodeCollector implements ByteCodeCollector {
 
-    private static final Lock LOCK = new ReentrantLock();
+    private static final int LOCK_STRIPES_COUNT = 64;
 
-    private static volatile ClassFileTransformer classFileTransformer;
+    private static final Lock[] LOCK_STRIPES = createLockStripes();
+
+    private static final Lock TRANSFORMER_LOCK = new ReentrantLock();
 
-    private static Map<String, byte[]> byteCodeStorage;
+    private static final Map<Class<?>, CaptureSlot> CAPTURE_SLOTS = new ConcurrentHashMap<>();
+
+    private static volatile ClassFileTransformer classFileTransformer;
 
     private ConfigurationManager configurationManager;
 
     @Override
-    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
     public byte[] getByteCode(Class<?> clazz) {
         if (clazz != null) {
-            synchronized (clazz) {
-                String className = ClassNameConverter.toJavaClassName(clazz);
-                Instrumentation instrumentation = configurationManager.getAgent().getInstrumentation();
+            return getByteCodes(Collections.singletonList(clazz)).get(clazz);
+        }
+
+        return null;
+    }
+
+    /**
+     * Obtains byte code of all classes uses single call of
+     * {@link Instrumentation#retransformClasses(Class[])}
+     * Each retransformation call is a JVM-wide pause, so outer class
+     * and all its inner classes should be retransformed together
+     *
+     * @param classes classes for which is getting byte code
+     * @return map where key is class and value is byte code of class
+     */
+    @Override
+    public Map<Class<?>, byte[]> getByteCodes(Collection<Class<?>> classes) {
+        Map<Class<?>, byte[]> byteCodes = new LinkedHashMap<>();
+
+        Instrumentation instrumentation = configurationManager.getAgent().getInstrumentation();
+        if (instrumentation != null) {
+            List<Class<?>> transformableClasses = getTransformableClasses(instrumentation, classes);
+            if (!transformableClasses.isEmpty()) {
+                initializeTransformer(configurationManager.getAgent());
+
+                List<Lock> locks = lockStripes(transformableClasses);
                 try {
-                    if (instrumentation != null) {
-                        if (instrumentation.isRetransformClassesSupported() && instrumentation.isModifiableClass(clazz)) {
-                            initializeTransformer(configurationManager.getAgent());
-                            instrumentation.retransformClasses(clazz);
-                        } else {
-                            System.err.println("Class " + className + " is can't be transform.");
+                    Map<Class<?>, CaptureSlot> slots = registerCaptureSlots(transformableClasses);
+                    try {
+                        retransformClasses(instrumentation, transformableClasses);
+
+                        for (Map.Entry<Class<?>, CaptureSlot> entry : slots.entrySet()) {
+                            byte[] byteCode = entry.getValue().byteCode;
+                            if (byteCode != null) {
+                                byteCodes.put(entry.getKey(), byteCode);
+                            }
                         }
-                    } else {
-                        System.err.println("Instrumentation instance is not initialize!");
+                    } finally {
+                        unregisterCaptureSlots(slots);
                     }
-                } catch (UnmodifiableClassException exception) {
-                    String errorMessage = "Class: \"" + className + "\" is can't transform";
-                    throw new IllegalClassException(errorMessage, exception, clazz);
+                } finally {
+                    unlockStripes(locks);
                 }
+            }
+        } else {
+            System.err.println("Instrumentation instance is not initialize!");
+        }
+
+        return byteCodes;
+    }
 
-                return getBytesOfClass(clazz);
+    /**
+     * Selects classes which can be retransformed
+     *
+     * @param instrumentation instrumentation instance
+     * @param classes         any classes
+     * @return list of classes can be retransformed
+     */
+    private List<Class<?>> getTransformableClasses(Instrumentation instrumentation, Collection<Class<?>> classes) {
+        List<Class<?>> transformableClasses = new ArrayList<>();
+
+        for (Class<?> clazz : classes) {
+            if (clazz != null) {
+                if (instrumentation.isRetransformClassesSupported() && instrumentation.isModifiableClass(clazz)) {
+                    transformableClasses.add(clazz);
+                } else {
+                    String className = ClassNameConverter.toJavaClassName(clazz);
+                    System.err.println("Class " + className + " is can't be transform.");
+                }
             }
         }
 
-        return null;
+        return transformableClasses;
+    }
+
+    /**
+     * Performs retransformation of all classes by one call
+     *
+     * @param instrumentation instrumentation instance
+     * @param classes         classes for retransformation
+     */
+    private void retransformClasses(Instrumentation instrumentation, List<Class<?>> classes) {
+        try {
+            instrumentation.retransformClasses(classes.toArray(new Class<?>[0]));
+        } catch (UnmodifiableClassException exception) {
+            Class<?> clazz = classes.get(0);
+            String className = ClassNameConverter.toJavaClassName(clazz);
+            String errorMessage = "Class: \"" + className + "\" is can't transform";
+            throw new IllegalClassException(errorMessage, exception, clazz);
+        }
     }
 
     @Override
@@ -84,54 +165,131 @@ public class InstrumentationByteCodeCollector implements ByteCodeCollector {
      */
     private void initializeTransformer(JavaAgent agent) {
         if (classFileTransformer == null) {
-            LOCK.lock();
+            TRANSFORMER_LOCK.lock();
             try {
                 if (classFileTransformer == null) {
-                    classFileTransformer = new ByteCodeStoreClassFileTransformer();
-                    byteCodeStorage = new ConcurrentHashMap<>();
+                    ClassFileTransformer transformer = new ByteCodeCaptureClassFileTransformer();
                     Instrumentation instrumentation = agent.getInstrumentation();
-                    instrumentation.addTransformer(classFileTransformer, true);
+                    instrumentation.addTransformer(transformer, true);
+                    classFileTransformer = transformer;
                 }
             } finally {
-                LOCK.unlock();
+                TRANSFORMER_LOCK.unlock();
             }
         }
     }
 
     /**
-     * Obtains byte code of class from storage map
+     * Creates locks guard capture slots of classes
      *
-     * @param clazz any class
-     * @return byte code of this class or null if map value is absent
+     * @return array of lock stripes
      */
-    private byte[] getBytesOfClass(Class<?> clazz) {
-        String className = ClassNameConverter.toJavaClassName(clazz);
-        return byteCodeStorage.remove(className);
+    private static Lock[] createLockStripes() {
+        Lock[] locks = new Lock[LOCK_STRIPES_COUNT];
+        for (int index = 0; index < locks.length; index++) {
+            locks[index] = new ReentrantLock();
+        }
+
+        return locks;
     }
 
     /**
-     * Resolves java class name and append it to byte code map
+     * Acquires lock stripes of all classes
+     * Stripes are always acquired in ascending order to avoid deadlocks
+     * between concurrent batches
      *
-     * @param className java class name
-     * @param byteCode  byte code of class
+     * @param classes any classes
+     * @return list of acquired locks
      */
-    private void uploadByteCodeOfClassToHolder(String className, byte[] byteCode) {
-        String javaBasedClassName = ClassNameConverter.toJavaClassName(className);
-        byteCodeStorage.put(javaBasedClassName, byteCode);
+    private List<Lock> lockStripes(List<Class<?>> classes) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Class<?> clazz : classes) {
+            stripes.add(System.identityHashCode(clazz) & (LOCK_STRIPES_COUNT - 1));
+        }
+
+        List<Lock> locks = new ArrayList<>(stripes.size());
+        try {
+            for (Integer stripe : stripes) {
+                Lock lock = LOCK_STRIPES[stripe];
+                lock.lock();
+                locks.add(lock);
+            }
+        } catch (RuntimeException | Error exception) {
+            unlockStripes(locks);
+            throw exception;
+        }
+
+        return locks;
     }
 
     /**
-     * Simple class file transformer uses for store of re-transformed byte code
+     * Releases acquired lock stripes in reverse order
+     *
+     * @param locks acquired locks
      */
-    private class ByteCodeStoreClassFileTransformer implements ClassFileTransformer {
+    private void unlockStripes(List<Lock> locks) {
+        for (int index = locks.size() - 1; index >= 0; index--) {
+            locks.get(index).unlock();
+        }
+    }
+
+    /**
+     * Registers empty capture slots for classes of current request
+     *
+     * @param classes classes for retransformation
+     * @return map where key is class and value is its capture slot
+     */
+    private Map<Class<?>, CaptureSlot> registerCaptureSlots(List<Class<?>> classes) {
+        Map<Class<?>, CaptureSlot> slots = new LinkedHashMap<>();
+        for (Class<?> clazz : classes) {
+            if (!slots.containsKey(clazz)) {
+                CaptureSlot slot = new CaptureSlot();
+                slots.put(clazz, slot);
+                CAPTURE_SLOTS.put(clazz, slot);
+            }
+        }
+
+        return slots;
+    }
+
+    /**
+     * Removes capture slots of current request
+     *
+     * @param slots capture slots of current request
+     */
+    private void unregisterCaptureSlots(Map<Class<?>, CaptureSlot> slots) {
+        for (Map.Entry<Class<?>, CaptureSlot> entry : slots.entrySet()) {
+            CAPTURE_SLOTS.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Holder of byte code captured for one class during one request
+     */
+    private static class CaptureSlot {
+
+        private volatile byte[] byteCode;
+    }
+
+    /**
+     * Simple class file transformer stores re-transformed byte code to capture slot
+     * Classes without registered slot are ignored
+     */
+    private static class ByteCodeCaptureClassFileTransformer implements ClassFileTransformer {
 
         @Override
-        public byte[] transform(ClassLoader loader, 
-                                String className, 
+        public byte[] transform(ClassLoader loader,
+                                String className,
                                 Class<?> classBeingRedefined,
                                 ProtectionDomain protectionDomain,
                                 byte[] byteCode) {
-            uploadByteCodeOfClassToHolder(className, byteCode);
+            if (classBeingRedefined != null) {
+                CaptureSlot slot = CAPTURE_SLOTS.get(classBeingRedefined);
+                if (slot != null) {
+                    slot.byteCode = byteCode;
+                }
+            }
+
             return null;
         }
     }
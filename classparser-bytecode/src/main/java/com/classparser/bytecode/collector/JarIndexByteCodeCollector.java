@@ -0,0 +1,234 @@
+package com.classparser.bytecode.collector;
+
+import com.classparser.bytecode.api.ByteCodeCollector;
+import com.classparser.bytecode.configuration.ConfigurationManager;
+import com.classparser.bytecode.exception.ByteCodeParserException;
+import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.JarFileIndex;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipException;
+
+/**
+ * Collector obtains byte code from jar file or directory
+ * which is the code source of class
+ * Central directory of each jar file is indexed only once and
+ * content of class files is read from memory mapped archive
+ * Index is rebuilt if jar file was changed
+ * <p>
+ * Kind of each code source location is resolved only once,
+ * so lookup of class in indexed jar file doesn't touch file system
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class JarIndexByteCodeCollector implements ByteCodeCollector {
+
+    private static final String FILE_PROTOCOL = "file";
+
+    private static final String JAVA_SPECIFICATION_VERSION = "java.specification.version";
+
+    private static final Map<Path, JarFileIndex> JAR_FILE_INDEXES = new ConcurrentHashMap<>();
+
+    private static final Set<Path> UNSUPPORTED_JAR_FILES = ConcurrentHashMap.newKeySet();
+
+    private static final Map<String, CodeSourceLocation> CODE_SOURCE_LOCATIONS = new ConcurrentHashMap<>();
+
+    private ConfigurationManager configurationManager;
+
+    @Override
+    public byte[] getByteCode(Class<?> clazz) {
+        if (clazz == null || clazz.getName().indexOf('/') != -1) {
+            return null;
+        }
+
+        CodeSourceLocation location = getCodeSourceLocation(clazz);
+        if (location != null && location.kind != LocationKind.UNSUPPORTED) {
+            String entryName = ClassNameConverter.toJarJavaClassName(clazz);
+            try {
+                if (location.kind == LocationKind.DIRECTORY) {
+                    return getByteCodeFromDirectory(location.path, entryName);
+                }
+
+                return getByteCodeFromJarFile(location.path, entryName);
+            } catch (IOException exception) {
+                throw new ByteCodeParserException("Can't read byte code of class " + clazz + " from " + location.path, exception);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return configurationManager.isEnableJarIndexByteCodeCollector();
+    }
+
+    @Override
+    public void setConfigurationManager(ConfigurationManager configurationManager) {
+        if (configurationManager != null) {
+            this.configurationManager = configurationManager;
+        }
+    }
+
+    /**
+     * Reads byte code of class from class path directory
+     *
+     * @param directory class path directory
+     * @param entryName relative path to class file
+     * @return byte code of class or null if class file is absent
+     * @throws IOException if class file can't be read
+     */
+    private byte[] getByteCodeFromDirectory(Path directory, String entryName) throws IOException {
+        try {
+            return Files.readAllBytes(directory.resolve(entryName));
+        } catch (NoSuchFileException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads byte code of class from indexed jar file
+     * Version specific entries of multi release jar are not resolved,
+     * so such classes are left to the next collectors on java 9 and above
+     *
+     * @param jarFile   path to jar file
+     * @param entryName name of class file in jar
+     * @return byte code of class or null if class file is absent
+     * @throws IOException if class file can't be read
+     */
+    private byte[] getByteCodeFromJarFile(Path jarFile, String entryName) throws IOException {
+        JarFileIndex index = getJarFileIndex(jarFile);
+        if (index != null && index.contains(entryName)) {
+            if (index.hasVersionedEntry(entryName) && !isJava8()) {
+                return null;
+            }
+
+            return index.getBytes(entryName);
+        }
+
+        return null;
+    }
+
+    /**
+     * Obtains actual index of jar file
+     * Index is built at first request and rebuilt only if file was changed
+     * Jar file is excluded from indexing only if it has unsupported format,
+     * other errors of reading are not remembered, so indexing is repeated
+     * at next request, file is read out of lock of map of indexes
+     * and index built by other thread in the meantime is preferred
+     *
+     * @param jarFile path to jar file
+     * @return index of jar file or null if jar file can't be indexed
+     */
+    private JarFileIndex getJarFileIndex(Path jarFile) {
+        if (UNSUPPORTED_JAR_FILES.contains(jarFile)) {
+            return null;
+        }
+
+        JarFileIndex index = JAR_FILE_INDEXES.get(jarFile);
+        if (index != null && index.isActual()) {
+            return index;
+        }
+
+        JarFileIndex openedIndex;
+        try {
+            openedIndex = JarFileIndex.open(jarFile);
+        } catch (ZipException exception) {
+            System.err.println("Jar file " + jarFile + " can't be indexed: " + exception.getMessage());
+            UNSUPPORTED_JAR_FILES.add(jarFile);
+            JAR_FILE_INDEXES.remove(jarFile);
+            return null;
+        } catch (IOException exception) {
+            return null;
+        }
+
+        return JAR_FILE_INDEXES.compute(jarFile, (path, current) -> current != null && current != index ? current : openedIndex);
+    }
+
+    /**
+     * Obtains location of code source of class
+     * Kind of location is resolved at first request of code source
+     *
+     * @param clazz any class
+     * @return location of code source or null if code source is not local file
+     */
+    private CodeSourceLocation getCodeSourceLocation(Class<?> clazz) {
+        try {
+            ProtectionDomain protectionDomain = clazz.getProtectionDomain();
+            CodeSource codeSource = protectionDomain != null ? protectionDomain.getCodeSource() : null;
+            URL location = codeSource != null ? codeSource.getLocation() : null;
+            if (location != null && FILE_PROTOCOL.equals(location.getProtocol())) {
+                CodeSourceLocation codeSourceLocation = CODE_SOURCE_LOCATIONS.get(location.toString());
+                if (codeSourceLocation == null) {
+                    codeSourceLocation = new CodeSourceLocation(Paths.get(location.toURI()));
+                    CODE_SOURCE_LOCATIONS.put(location.toString(), codeSourceLocation);
+                }
+
+                return codeSourceLocation;
+            }
+        } catch (SecurityException | URISyntaxException | IllegalArgumentException exception) {
+            return null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if current java version is 8 or lower
+     *
+     * @return true if multi release jars are not supported by runtime
+     */
+    private boolean isJava8() {
+        return System.getProperty(JAVA_SPECIFICATION_VERSION, "").startsWith("1.");
+    }
+
+    /**
+     * Kind of code source location
+     */
+    private enum LocationKind {
+
+        DIRECTORY,
+
+        JAR_FILE,
+
+        UNSUPPORTED
+    }
+
+    /**
+     * Path to code source with resolved kind
+     */
+    private static class CodeSourceLocation {
+
+        private final Path path;
+
+        private final LocationKind kind;
+
+        private CodeSourceLocation(Path path) {
+            this.path = path;
+            if (Files.isDirectory(path)) {
+                this.kind = LocationKind.DIRECTORY;
+            } else if (Files.isRegularFile(path)) {
+                this.kind = LocationKind.JAR_FILE;
+            } else {
+                this.kind = LocationKind.UNSUPPORTED;
+            }
+        }
+    }
+}
\ No newline at end of file
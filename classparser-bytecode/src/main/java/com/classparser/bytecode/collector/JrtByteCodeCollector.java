@@ -0,0 +1,180 @@
+package com.classparser.bytecode.collector;
+
+import com.classparser.bytecode.api.ByteCodeCollector;
+import com.classparser.bytecode.configuration.ConfigurationManager;
+import com.classparser.bytecode.exception.ByteCodeParserException;
+import com.classparser.bytecode.utils.ClassNameConverter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collector obtains byte code of JDK platform classes from run-time image
+ * uses the "jrt:/" file system
+ * Index of packages and modules is built only once, so byte code of class
+ * is read directly from module without searching through class loaders
+ * Collector is disabled on java 8 and lower because run-time image is absent
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class JrtByteCodeCollector implements ByteCodeCollector {
+
+    private static final String JRT_PROTOCOL = "jrt";
+
+    private static final String JRT_ROOT = "jrt:/";
+
+    private static final String PACKAGES_DIRECTORY = "/packages";
+
+    private static final String MODULES_DIRECTORY = "/modules";
+
+    private ConfigurationManager configurationManager;
+
+    @Override
+    public byte[] getByteCode(Class<?> clazz) {
+        if (clazz == null || clazz.isArray() || clazz.isPrimitive() || !isPlatformClass(clazz)) {
+            return null;
+        }
+
+        String entryName = ClassNameConverter.toJarJavaClassName(clazz);
+        int packageSeparator = entryName.lastIndexOf('/');
+        if (clazz.getName().indexOf('/') != -1 || packageSeparator == -1) {
+            return null;
+        }
+
+        Path moduleRoot = ModulesIndex.getModuleRoot(entryName.substring(0, packageSeparator));
+        if (moduleRoot != null) {
+            Path classFile = moduleRoot.resolve(entryName);
+            try {
+                if (Files.isRegularFile(classFile)) {
+                    return Files.readAllBytes(classFile);
+                }
+            } catch (IOException exception) {
+                throw new ByteCodeParserException("Can't read byte code of class " + clazz + " from run-time image", exception);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return 50;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return configurationManager.isEnableJrtByteCodeCollector() && ModulesIndex.isAvailable();
+    }
+
+    @Override
+    public void setConfigurationManager(ConfigurationManager configurationManager) {
+        if (configurationManager != null) {
+            this.configurationManager = configurationManager;
+        }
+    }
+
+    /**
+     * Checks if class was loaded from run-time image
+     * Such classes have no code source or have code source with "jrt" protocol
+     *
+     * @param clazz any class
+     * @return true if class is JDK platform class
+     */
+    private boolean isPlatformClass(Class<?> clazz) {
+        try {
+            ProtectionDomain protectionDomain = clazz.getProtectionDomain();
+            CodeSource codeSource = protectionDomain != null ? protectionDomain.getCodeSource() : null;
+            URL location = codeSource != null ? codeSource.getLocation() : null;
+
+            return location == null || JRT_PROTOCOL.equals(location.getProtocol());
+        } catch (SecurityException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Lazy index of run-time image where key is package
+     * name in internal form and value is root of module contains this package
+     */
+    private static class ModulesIndex {
+
+        private static final Map<String, Path> PACKAGE_MODULES = createPackageModules();
+
+        /**
+         * Checks if run-time image is available for current JVM
+         *
+         * @return true if index of modules is not empty
+         */
+        private static boolean isAvailable() {
+            return !PACKAGE_MODULES.isEmpty();
+        }
+
+        /**
+         * Obtains root of module contains package
+         *
+         * @param packageName package name in internal form, for example "java/lang"
+         * @return root of module or null if package is not found
+         */
+        private static Path getModuleRoot(String packageName) {
+            return PACKAGE_MODULES.get(packageName);
+        }
+
+        /**
+         * Reads "/packages" directory of run-time image
+         * Each subdirectory of it has name of package and contains links to modules
+         *
+         * @return unmodifiable index of packages
+         */
+        private static Map<String, Path> createPackageModules() {
+            FileSystem fileSystem = getJrtFileSystem();
+            if (fileSystem == null) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, Path> packageModules = new HashMap<>();
+            Path modules = fileSystem.getPath(MODULES_DIRECTORY);
+            try (DirectoryStream<Path> packages = Files.newDirectoryStream(fileSystem.getPath(PACKAGES_DIRECTORY))) {
+                for (Path packagePath : packages) {
+                    String packageName = packagePath.getFileName().toString().replace('.', '/');
+                    try (DirectoryStream<Path> packageModulesLinks = Files.newDirectoryStream(packagePath)) {
+                        for (Path module : packageModulesLinks) {
+                            packageModules.putIfAbsent(packageName, modules.resolve(module.getFileName().toString()));
+                        }
+                    }
+                }
+            } catch (IOException exception) {
+                System.err.println("Run-time image can't be indexed: " + exception.getMessage());
+                return Collections.emptyMap();
+            }
+
+            return Collections.unmodifiableMap(packageModules);
+        }
+
+        /**
+         * Obtains "jrt:/" file system of current JVM
+         *
+         * @return file system or null if it is not supported
+         */
+        private static FileSystem getJrtFileSystem() {
+            try {
+                return FileSystems.getFileSystem(URI.create(JRT_ROOT));
+            } catch (FileSystemNotFoundException | ProviderNotFoundException | SecurityException exception) {
+                return null;
+            }
+        }
+    }
+}
\ No newline at end of file
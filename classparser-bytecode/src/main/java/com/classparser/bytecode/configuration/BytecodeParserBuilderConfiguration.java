@@ -8,6 +8,7 @@ import com.classparser.configuration.Configuration;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Class provides java API special builder for creating
@@ -118,5 +119,121 @@ public class BytecodeParserBuilderConfiguration {
             }
             return this;
         }
+
+        @Override
+        public BytecodeParserConfiguration enableByteCodeCache(boolean flag) {
+            configuration.put(ENABLED_BYTECODE_CACHE_KEY, flag);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setByteCodeCacheMaxSize(int size) {
+            configuration.put(BYTECODE_CACHE_MAX_SIZE_KEY, size);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setByteCodeCacheMaxWeight(long weight) {
+            configuration.put(BYTECODE_CACHE_MAX_WEIGHT_KEY, weight);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration enableJarIndexBytecodeCollector(boolean flag) {
+            configuration.put(ENABLED_JAR_INDEX_BYTECODE_COLLECTOR_KEY, flag);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration enableJrtBytecodeCollector(boolean flag) {
+            configuration.put(ENABLED_JRT_BYTECODE_COLLECTOR_KEY, flag);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setParsingExecutor(ExecutorService executor) {
+            if (executor != null) {
+                configuration.put(PARSING_EXECUTOR_KEY, executor);
+            }
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setCollectingExecutor(ExecutorService executor) {
+            if (executor != null) {
+                configuration.put(COLLECTING_EXECUTOR_KEY, executor);
+            }
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setDecompilationBatchSize(int size) {
+            configuration.put(DECOMPILATION_BATCH_SIZE_KEY, size);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration enableSourceCache(boolean flag) {
+            configuration.put(ENABLED_SOURCE_CACHE_KEY, flag);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setSourceCacheMaxSize(int size) {
+            configuration.put(SOURCE_CACHE_MAX_SIZE_KEY, size);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setSourceCacheMaxWeight(long weight) {
+            configuration.put(SOURCE_CACHE_MAX_WEIGHT_KEY, weight);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration enableDiskSourceCache(boolean flag) {
+            configuration.put(ENABLED_DISK_SOURCE_CACHE_KEY, flag);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setDirectoryForSourceCache(String path) {
+            if (path != null) {
+                configuration.put(DIRECTORY_FOR_SOURCE_CACHE_KEY, path);
+            }
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setDiskSourceCacheMaxWeight(long weight) {
+            configuration.put(DISK_SOURCE_CACHE_MAX_WEIGHT_KEY, weight);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration enableSharedSourceCache(boolean flag) {
+            configuration.put(ENABLED_SHARED_SOURCE_CACHE_KEY, flag);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setSharedSourceCacheFile(String path) {
+            if (path != null) {
+                configuration.put(SHARED_SOURCE_CACHE_FILE_KEY, path);
+            }
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration setSharedSourceCacheSize(long size) {
+            configuration.put(SHARED_SOURCE_CACHE_SIZE_KEY, size);
+            return this;
+        }
+
+        @Override
+        public BytecodeParserConfiguration enableOffHeapByteCodeCache(boolean flag) {
+            configuration.put(ENABLED_OFF_HEAP_BYTECODE_CACHE_KEY, flag);
+            return this;
+        }
     }
 }
\ No newline at end of file
@@ -4,6 +4,10 @@ import com.classparser.bytecode.ByteCodeParser;
 import com.classparser.bytecode.agent.DefaultJavaAgent;
 import com.classparser.bytecode.api.JavaAgent;
 import com.classparser.bytecode.api.Decompiler;
+import com.classparser.bytecode.cache.SourceCache;
+import com.classparser.bytecode.collector.ByteCodeCollectorRegistry;
+import com.classparser.bytecode.collector.CachingByteCodeCollector;
+import com.classparser.bytecode.collector.ChainByteCodeCollector;
 import com.classparser.bytecode.decompile.fernflower.FernflowerDecompiler;
 import com.classparser.configuration.Configuration;
 import com.classparser.util.ConfigurationUtils;
@@ -11,6 +15,10 @@ import com.classparser.util.ConfigurationUtils;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.classparser.bytecode.configuration.api.BytecodeParserConfiguration.*;
 
@@ -28,10 +36,32 @@ public class ConfigurationManager {
 
     private static final String HOME_DIR_KEY = "user.dir";
 
+    private static final String TEMP_DIR_KEY = "java.io.tmpdir";
+
+    private static final long DEFAULT_BYTECODE_CACHE_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private static final long DEFAULT_SOURCE_CACHE_MAX_WEIGHT = 16L * 1024 * 1024;
+
+    private static final long DEFAULT_DISK_SOURCE_CACHE_MAX_WEIGHT = 256L * 1024 * 1024;
+
+    private static final long DEFAULT_SHARED_SOURCE_CACHE_SIZE = 64L * 1024 * 1024;
+
     private final ConfigurationUtils utils;
 
+    private final AtomicLong configurationEpoch;
+
+    private final ByteCodeCollectorRegistry collectorRegistry;
+
+    private final CachingByteCodeCollector byteCodeCollector;
+
+    private final SourceCache sourceCache;
+
     public ConfigurationManager() {
         this.utils = new ConfigurationUtils(getDefaultConfiguration());
+        this.configurationEpoch = new AtomicLong();
+        this.collectorRegistry = new ByteCodeCollectorRegistry(this);
+        this.byteCodeCollector = new CachingByteCodeCollector(new ChainByteCodeCollector(this), this);
+        this.sourceCache = new SourceCache(this);
     }
 
     /**
@@ -48,6 +78,24 @@ public class ConfigurationManager {
      *      <li>{@link #getDirectoryForSaveByteCode()} - ${user.dir}/classes</li>
      *      <li>{@link #getAgent()} - {@link DefaultJavaAgent}</li>
      *      <li>{@link #getToolsJarPath()} - Empty</li>
+     *      <li>{@link #isEnableByteCodeCache()} - yes</li>
+     *      <li>{@link #getByteCodeCacheMaxSize()} - 1024</li>
+     *      <li>{@link #getByteCodeCacheMaxWeight()} - 64 MB</li>
+     *      <li>{@link #isEnableJarIndexByteCodeCollector()} - yes</li>
+     *      <li>{@link #isEnableJrtByteCodeCollector()} - yes</li>
+     *      <li>{@link #getParsingExecutor()} - {@link ForkJoinPool#commonPool()}</li>
+     *      <li>{@link #getCollectingExecutor()} - shared cached thread pool</li>
+     *      <li>{@link #getDecompilationBatchSize()} - 16</li>
+     *      <li>{@link #isEnableSourceCache()} - yes</li>
+     *      <li>{@link #getSourceCacheMaxSize()} - 256</li>
+     *      <li>{@link #getSourceCacheMaxWeight()} - 16 M characters</li>
+     *      <li>{@link #isEnableDiskSourceCache()} - no</li>
+     *      <li>{@link #getDirectoryForSourceCache()} - ${user.dir}/sources</li>
+     *      <li>{@link #getDiskSourceCacheMaxWeight()} - 256 MB</li>
+     *      <li>{@link #isEnableSharedSourceCache()} - no</li>
+     *      <li>{@link #getSharedSourceCacheFile()} - ${java.io.tmpdir}/classparser-sources.cache</li>
+     *      <li>{@link #getSharedSourceCacheSize()} - 64 MB</li>
+     *      <li>{@link #isEnableOffHeapByteCodeCache()} - no</li>
      * </ul>
      *
      * @return default configuration
@@ -66,6 +114,24 @@ public class ConfigurationManager {
                 .setDirectoryToSaveByteCode(System.getProperty(HOME_DIR_KEY) + File.separatorChar + "classes")
                 .setAgentClass(new DefaultJavaAgent(this))
                 .setToolsJarPath("")
+                .enableByteCodeCache(true)
+                .setByteCodeCacheMaxSize(1024)
+                .setByteCodeCacheMaxWeight(DEFAULT_BYTECODE_CACHE_MAX_WEIGHT)
+                .enableJarIndexBytecodeCollector(true)
+                .enableJrtBytecodeCollector(true)
+                .setParsingExecutor(ForkJoinPool.commonPool())
+                .setCollectingExecutor(CollectingExecutorHolder.EXECUTOR)
+                .setDecompilationBatchSize(16)
+                .enableSourceCache(true)
+                .setSourceCacheMaxSize(256)
+                .setSourceCacheMaxWeight(DEFAULT_SOURCE_CACHE_MAX_WEIGHT)
+                .enableDiskSourceCache(false)
+                .setDirectoryForSourceCache(System.getProperty(HOME_DIR_KEY) + File.separatorChar + "sources")
+                .setDiskSourceCacheMaxWeight(DEFAULT_DISK_SOURCE_CACHE_MAX_WEIGHT)
+                .enableSharedSourceCache(false)
+                .setSharedSourceCacheFile(System.getProperty(TEMP_DIR_KEY) + File.separatorChar + "classparser-sources.cache")
+                .setSharedSourceCacheSize(DEFAULT_SHARED_SOURCE_CACHE_SIZE)
+                .enableOffHeapByteCodeCache(false)
                 .getConfiguration();
     }
 
@@ -76,6 +142,46 @@ public class ConfigurationManager {
      */
     public void reloadConfiguration(Configuration configuration) {
         this.utils.reloadConfiguration(configuration);
+        this.configurationEpoch.incrementAndGet();
+    }
+
+    /**
+     * Obtains the current configuration epoch
+     * Epoch is increased after each reload of configuration and
+     * allows to invalidate any state was built by the previous configuration
+     *
+     * @return current configuration epoch
+     */
+    public long getConfigurationEpoch() {
+        return configurationEpoch.get();
+    }
+
+    /**
+     * Obtains registry of byte code collectors bounded with this configuration
+     *
+     * @return byte code collectors registry
+     */
+    public ByteCodeCollectorRegistry getCollectorRegistry() {
+        return collectorRegistry;
+    }
+
+    /**
+     * Obtains shared byte code collector bounded with this configuration
+     * Collector calls chain of all enabled collectors and caches found byte code
+     *
+     * @return caching byte code collector
+     */
+    public CachingByteCodeCollector getByteCodeCollector() {
+        return byteCodeCollector;
+    }
+
+    /**
+     * Obtains cache of decompiled code bounded with this configuration
+     *
+     * @return decompiled code cache
+     */
+    public SourceCache getSourceCache() {
+        return sourceCache;
     }
 
     /**
@@ -132,6 +238,24 @@ public class ConfigurationManager {
         return utils.getConfigOption(ENABLED_CLASS_FILE_BYTECODE_COLLECTOR_KEY, Boolean.class);
     }
 
+    /**
+     * Checks if jar index byte code collector should be enabled
+     *
+     * @return true if jar index collector is enable
+     */
+    public boolean isEnableJarIndexByteCodeCollector() {
+        return utils.getConfigOption(ENABLED_JAR_INDEX_BYTECODE_COLLECTOR_KEY, Boolean.class);
+    }
+
+    /**
+     * Checks if run-time image byte code collector should be enabled
+     *
+     * @return true if jrt collector is enable
+     */
+    public boolean isEnableJrtByteCodeCollector() {
+        return utils.getConfigOption(ENABLED_JRT_BYTECODE_COLLECTOR_KEY, Boolean.class);
+    }
+
     /**
      * Checks if instrumentation byte code collector should be enabled
      *
@@ -176,4 +300,163 @@ public class ConfigurationManager {
     public String getToolsJarPath() {
         return utils.getConfigOption(TOOLS_JAR_PATH_KEY, String.class);
     }
+
+    /**
+     * Checks if collected byte code should be cached
+     *
+     * @return true if byte code cache is enabled
+     */
+    public boolean isEnableByteCodeCache() {
+        return utils.getConfigOption(ENABLED_BYTECODE_CACHE_KEY, Boolean.class);
+    }
+
+    /**
+     * Obtains max count of classes in byte code cache
+     *
+     * @return max size of byte code cache
+     */
+    public int getByteCodeCacheMaxSize() {
+        return utils.getConfigOption(BYTECODE_CACHE_MAX_SIZE_KEY, Integer.class);
+    }
+
+    /**
+     * Obtains max total size of byte code in cache
+     *
+     * @return max weight of byte code cache in bytes
+     */
+    public long getByteCodeCacheMaxWeight() {
+        return utils.getConfigOption(BYTECODE_CACHE_MAX_WEIGHT_KEY, Long.class);
+    }
+
+    /**
+     * Obtains executor for parsing of several classes
+     *
+     * @return executor service
+     */
+    public ExecutorService getParsingExecutor() {
+        return utils.getConfigOption(PARSING_EXECUTOR_KEY, ExecutorService.class);
+    }
+
+    /**
+     * Obtains executor for collecting of byte code
+     *
+     * @return executor service
+     */
+    public ExecutorService getCollectingExecutor() {
+        return utils.getConfigOption(COLLECTING_EXECUTOR_KEY, ExecutorService.class);
+    }
+
+    /**
+     * Obtains max count of classes which are decompiled in one decompiler context
+     *
+     * @return size of decompilation batch
+     */
+    public int getDecompilationBatchSize() {
+        return utils.getConfigOption(DECOMPILATION_BATCH_SIZE_KEY, Integer.class);
+    }
+
+    /**
+     * Checks if decompiled code should be cached
+     *
+     * @return true if decompiled code cache is enabled
+     */
+    public boolean isEnableSourceCache() {
+        return utils.getConfigOption(ENABLED_SOURCE_CACHE_KEY, Boolean.class);
+    }
+
+    /**
+     * Obtains max count of classes in decompiled code cache
+     *
+     * @return max size of decompiled code cache
+     */
+    public int getSourceCacheMaxSize() {
+        return utils.getConfigOption(SOURCE_CACHE_MAX_SIZE_KEY, Integer.class);
+    }
+
+    /**
+     * Obtains max total length of decompiled code in cache
+     *
+     * @return max weight of decompiled code cache in characters
+     */
+    public long getSourceCacheMaxWeight() {
+        return utils.getConfigOption(SOURCE_CACHE_MAX_WEIGHT_KEY, Long.class);
+    }
+
+    /**
+     * Checks if decompiled code should be stored to disk cache
+     *
+     * @return true if disk cache of decompiled code is enabled
+     */
+    public boolean isEnableDiskSourceCache() {
+        return utils.getConfigOption(ENABLED_DISK_SOURCE_CACHE_KEY, Boolean.class);
+    }
+
+    /**
+     * Obtains the path to directory where decompiled code is stored by disk cache
+     *
+     * @return path to directory of disk cache
+     */
+    public String getDirectoryForSourceCache() {
+        return utils.getConfigOption(DIRECTORY_FOR_SOURCE_CACHE_KEY, String.class);
+    }
+
+    /**
+     * Obtains max total size of files in directory of disk cache
+     *
+     * @return max size of disk cache in bytes
+     */
+    public long getDiskSourceCacheMaxWeight() {
+        return utils.getConfigOption(DISK_SOURCE_CACHE_MAX_WEIGHT_KEY, Long.class);
+    }
+
+    /**
+     * Checks if decompiled code should be stored to memory mapped file shared by local JVMs
+     *
+     * @return true if shared cache of decompiled code is enabled
+     */
+    public boolean isEnableSharedSourceCache() {
+        return utils.getConfigOption(ENABLED_SHARED_SOURCE_CACHE_KEY, Boolean.class);
+    }
+
+    /**
+     * Obtains the path to memory mapped file of shared cache
+     *
+     * @return path to shared file
+     */
+    public String getSharedSourceCacheFile() {
+        return utils.getConfigOption(SHARED_SOURCE_CACHE_FILE_KEY, String.class);
+    }
+
+    /**
+     * Obtains size of memory mapped file of shared cache
+     *
+     * @return size of shared file in bytes
+     */
+    public long getSharedSourceCacheSize() {
+        return utils.getConfigOption(SHARED_SOURCE_CACHE_SIZE_KEY, Long.class);
+    }
+
+    /**
+     * Checks if cached byte code should be compressed and stored out of java heap
+     *
+     * @return true if off-heap byte code cache is enabled
+     */
+    public boolean isEnableOffHeapByteCodeCache() {
+        return utils.getConfigOption(ENABLED_OFF_HEAP_BYTECODE_CACHE_KEY, Boolean.class);
+    }
+
+    /**
+     * Holder of default executor for collecting of byte code
+     * Executor is shared by all configuration managers
+     */
+    private static class CollectingExecutorHolder {
+
+        private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "classparser-bytecode-collector-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
\ No newline at end of file
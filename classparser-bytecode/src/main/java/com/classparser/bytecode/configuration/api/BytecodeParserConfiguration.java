@@ -7,6 +7,10 @@ import com.classparser.bytecode.api.JavaAgent;
 import com.classparser.bytecode.decompile.fernflower.FernflowerDecompiler;
 import com.classparser.configuration.Configuration;
 
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Builder configuration for class: {@link ByteCodeParser}
  *
@@ -37,6 +41,42 @@ public interface BytecodeParserConfiguration extends Configuration {
 
     String TOOLS_JAR_PATH_KEY = "tjp";
 
+    String ENABLED_BYTECODE_CACHE_KEY = "ebc";
+
+    String BYTECODE_CACHE_MAX_SIZE_KEY = "bcs";
+
+    String BYTECODE_CACHE_MAX_WEIGHT_KEY = "bcw";
+
+    String ENABLED_JAR_INDEX_BYTECODE_COLLECTOR_KEY = "jbc";
+
+    String ENABLED_JRT_BYTECODE_COLLECTOR_KEY = "jrc";
+
+    String PARSING_EXECUTOR_KEY = "pex";
+
+    String COLLECTING_EXECUTOR_KEY = "cex";
+
+    String DECOMPILATION_BATCH_SIZE_KEY = "dbs";
+
+    String ENABLED_SOURCE_CACHE_KEY = "esc";
+
+    String SOURCE_CACHE_MAX_SIZE_KEY = "scs";
+
+    String SOURCE_CACHE_MAX_WEIGHT_KEY = "scw";
+
+    String ENABLED_DISK_SOURCE_CACHE_KEY = "edc";
+
+    String DIRECTORY_FOR_SOURCE_CACHE_KEY = "dsc";
+
+    String DISK_SOURCE_CACHE_MAX_WEIGHT_KEY = "dcw";
+
+    String ENABLED_SHARED_SOURCE_CACHE_KEY = "ess";
+
+    String SHARED_SOURCE_CACHE_FILE_KEY = "ssf";
+
+    String SHARED_SOURCE_CACHE_SIZE_KEY = "ssw";
+
+    String ENABLED_OFF_HEAP_BYTECODE_CACHE_KEY = "obc";
+
     /**
      * Needs decompile inner, nested, anonymous and local classes
      * <p>
@@ -144,4 +184,208 @@ public interface BytecodeParserConfiguration extends Configuration {
      * @return builder instance
      */
     BytecodeParserConfiguration setToolsJarPath(String path);
+
+    /**
+     * Enables caching of collected byte code of classes
+     * <p>
+     * Default value: true
+     *
+     * @param flag true/false value
+     * @return builder instance
+     */
+    BytecodeParserConfiguration enableByteCodeCache(boolean flag);
+
+    /**
+     * Sets max count of classes which byte code can be stored in cache
+     * <p>
+     * Default value: 1024
+     *
+     * @param size max count of cached classes
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setByteCodeCacheMaxSize(int size);
+
+    /**
+     * Sets max total size of byte code in bytes which can be stored in cache
+     * <p>
+     * Default value: 64 MB
+     *
+     * @param weight max size of cached byte code in bytes
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setByteCodeCacheMaxWeight(long weight);
+
+    /**
+     * Enables search byte code in indexed memory mapped jar files
+     * <p>
+     * Default value: true
+     *
+     * @param flag true/false value
+     * @return builder instance
+     */
+    BytecodeParserConfiguration enableJarIndexBytecodeCollector(boolean flag);
+
+    /**
+     * Enables search byte code of JDK classes in run-time image
+     * Has no effect on java 8 and lower
+     * <p>
+     * Default value: true
+     *
+     * @param flag true/false value
+     * @return builder instance
+     */
+    BytecodeParserConfiguration enableJrtBytecodeCollector(boolean flag);
+
+    /**
+     * Sets executor uses for parsing of several classes
+     * by {@link ByteCodeParser#parseClasses(Collection)}
+     * and for decompilation by {@link ByteCodeParser#parseClassAsync(Class)}
+     * <p>
+     * Default value: {@link ForkJoinPool#commonPool()}
+     *
+     * @param executor executor service or fork join pool
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setParsingExecutor(ExecutorService executor);
+
+    /**
+     * Sets executor uses for collecting of byte code
+     * by {@link ByteCodeParser#parseClassAsync(Class)}
+     * Collecting of byte code is blocked by I/O, agent attaching
+     * and retransformation of classes, so this executor should not be
+     * the same as executor for decompilation
+     * <p>
+     * Default value: shared cached thread pool with daemon threads
+     *
+     * @param executor executor service
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setCollectingExecutor(ExecutorService executor);
+
+    /**
+     * Sets max count of classes which are decompiled in one decompiler context
+     * by {@link ByteCodeParser#parseClasses(Collection)}
+     * Decompilers which don't support batch decompilation decompile classes one by one
+     * <p>
+     * Default value: 16
+     *
+     * @param size max count of classes in one batch
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setDecompilationBatchSize(int size);
+
+    /**
+     * Enables caching of decompiled code of classes
+     * Decompiled code is cached by byte code of class and its inner classes,
+     * decompiler and configuration of decompiler, so the same byte code is
+     * never decompiled twice even if it was loaded by different class loaders
+     * <p>
+     * Default value: true
+     *
+     * @param flag true/false value
+     * @return builder instance
+     */
+    BytecodeParserConfiguration enableSourceCache(boolean flag);
+
+    /**
+     * Sets max count of classes which decompiled code can be stored in cache
+     * <p>
+     * Default value: 256
+     *
+     * @param size max count of cached classes
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setSourceCacheMaxSize(int size);
+
+    /**
+     * Sets max total length of decompiled code in characters which can be stored in cache
+     * <p>
+     * Default value: 16 M characters
+     *
+     * @param weight max length of cached code in characters
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setSourceCacheMaxWeight(long weight);
+
+    /**
+     * Enables storing of decompiled code to directory of file system
+     * Disk cache is the second level of decompiled code cache, so it is used only
+     * if decompiled code cache is enabled, stored code is found again after
+     * restart of application by the same byte code and configuration of decompiler
+     * <p>
+     * Default value: false
+     *
+     * @param flag true/false value
+     * @return builder instance
+     */
+    BytecodeParserConfiguration enableDiskSourceCache(boolean flag);
+
+    /**
+     * Sets directory where decompiled code will be stored by disk cache
+     * <p>
+     * Default value: ${user.dir}/sources
+     *
+     * @param path path to directory of disk cache
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setDirectoryForSourceCache(String path);
+
+    /**
+     * Sets max total size of files in directory of disk cache in bytes
+     * Least recently used files are removed if size of directory exceeds the limit
+     * <p>
+     * Default value: 256 MB
+     *
+     * @param weight max size of disk cache in bytes
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setDiskSourceCacheMaxWeight(long weight);
+
+    /**
+     * Enables storing of decompiled code to memory mapped file
+     * which is shared by all JVMs on the same host
+     * Shared cache is searched after memory cache and before disk cache,
+     * so it is used only if decompiled code cache is enabled
+     * <p>
+     * Default value: false
+     *
+     * @param flag true/false value
+     * @return builder instance
+     */
+    BytecodeParserConfiguration enableSharedSourceCache(boolean flag);
+
+    /**
+     * Sets path to memory mapped file of shared cache
+     * <p>
+     * Default value: ${java.io.tmpdir}/classparser-sources.cache
+     *
+     * @param path path to shared file
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setSharedSourceCacheFile(String path);
+
+    /**
+     * Sets size of memory mapped file of shared cache in bytes
+     * Size is used only for creation of file, if file is already
+     * created by other process, then its size is used
+     * <p>
+     * Default value: 64 MB
+     *
+     * @param size size of shared file in bytes
+     * @return builder instance
+     */
+    BytecodeParserConfiguration setSharedSourceCacheSize(long size);
+
+    /**
+     * Enables storing of cached byte code out of java heap
+     * Byte code is compressed and stored to slabs of direct memory,
+     * max weight of byte code cache is applied to compressed byte code
+     * and max size of byte code cache isn't applied
+     * <p>
+     * Default value: false
+     *
+     * @param flag true/false value
+     * @return builder instance
+     */
+    BytecodeParserConfiguration enableOffHeapByteCodeCache(boolean flag);
 }
\ No newline at end of file
@@ -5,6 +5,9 @@ import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.decompile.fernflower.configuration.FernflowerBuilderConfiguration;
 import com.classparser.bytecode.decompile.fernflower.configuration.FernflowerConfiguration;
 import com.classparser.bytecode.exception.decompile.DecompilationException;
+import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.Deadline;
+import com.classparser.bytecode.utils.ImplementationVersionUtils;
 import com.classparser.configuration.Configuration;
 import org.jetbrains.java.decompiler.main.DecompilerContext;
 import org.jetbrains.java.decompiler.main.Fernflower;
@@ -18,9 +21,16 @@ import org.jetbrains.java.decompiler.struct.lazy.LazyLoader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Adapter of Fernflower decompiler for {@link Decompiler} API
@@ -28,53 +38,218 @@ import java.util.concurrent.ConcurrentHashMap;
  * Decompiler version: ? (Feb 3, 2020)
  * <p>
  * Fernflower decompiler support java 8 syntax and can decompile all inner classes
+ * <p>
+ * Each thread uses own decompilation session, session keeps options
+ * which are compiled once for each configuration epoch
+ * <p>
+ * If current thread has {@link Deadline}, then max processing time of method
+ * is limited by remaining time of deadline and deadline is checked between classes
+ * and after the last class, processing of one method isn't stopped by cancellation of deadline
+ * Method which exceeds max processing time is replaced by stub, it happens only
+ * after expiration of deadline, so such code is never returned
+ * Fernflower processes each method in own thread if max processing time is set,
+ * so decompilation with deadline is slower than without it
  *
  * @author Aleksei Makarov
  * @since 1.0.0
  */
 public final class FernflowerDecompiler implements Decompiler {
 
-    private final Map<String, Object> configurationMap;
+    private static final String MAX_PROCESSING_METHOD_KEY = "mpm";
+
+    private final Map<String, Object> defaultConfiguration;
+
+    private final ThreadLocal<FernflowerSession> sessions;
+
+    private volatile FernflowerOptions options;
 
     public FernflowerDecompiler() {
-        this.configurationMap = new ConcurrentHashMap<>();
+        this.defaultConfiguration = Collections.unmodifiableMap(getDefaultConfiguration());
+        this.sessions = new ThreadLocal<>();
+        this.options = new FernflowerOptions(null, 0, defaultConfiguration);
     }
 
     @Override
     public String decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes) {
-        if (byteCode != null && nestedClassesByteCodes != null) {
-            IFernflowerLogger logger = new PrintStreamLogger(System.out);
-            IResultSaver nothingSaver = new NothingSaver(null, null, logger);
-            Map<String, Object> configuration = getConfiguration();
+        return decompileAll(Collections.singletonMap(byteCode, nestedClassesByteCodes)).get(byteCode);
+    }
 
-            Fernflower fernflower = new Fernflower(null, nothingSaver, configuration, logger);
+    /**
+     * Decompiles several classes in one Fernflower context
+     * All classes are loaded to one struct context and context
+     * is decompiled only once, after that code of each class is obtained separately
+     * <p>
+     * Classes of different class loaders can have the same name,
+     * such classes are decompiled in separate contexts
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @return map where key is byte code of class and value is decompiled code
+     */
+    @Override
+    public Map<byte[], String> decompileAll(Map<byte[], Collection<byte[]>> byteCodes) {
+        checkByteCodes(byteCodes);
+
+        List<Map<byte[], Collection<byte[]>>> batches = splitByClassNames(byteCodes);
+        if (batches.size() == 1) {
+            return decompileBatch(batches.get(0));
+        }
 
-            StructClass structClass = createStructClass(byteCode);
-            for (byte[] byteCodeOfNestedClass : nestedClassesByteCodes) {
-                createStructClass(byteCodeOfNestedClass);
+        Map<byte[], String> decompiledBatches = new HashMap<>();
+        for (Map<byte[], Collection<byte[]>> batch : batches) {
+            decompiledBatches.putAll(decompileBatch(batch));
+        }
+
+        Map<byte[], String> decompiledClasses = new LinkedHashMap<>();
+        for (byte[] byteCode : byteCodes.keySet()) {
+            decompiledClasses.put(byteCode, decompiledBatches.get(byteCode));
+        }
+
+        return decompiledClasses;
+    }
+
+    /**
+     * Decompiles classes with unique names in one Fernflower context
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @return map where key is byte code of class and value is decompiled code
+     */
+    private Map<byte[], String> decompileBatch(Map<byte[], Collection<byte[]>> byteCodes) {
+        FernflowerSession session = getSession();
+        Map<String, Object> configuration = getConfiguration(session.options.configuration);
+        Fernflower fernflower = new Fernflower(null, session.saver, configuration, session.logger);
+        try {
+            Map<byte[], StructClass> structClasses = new LinkedHashMap<>();
+            for (Map.Entry<byte[], Collection<byte[]>> entry : byteCodes.entrySet()) {
+                Deadline.checkCurrent();
+                structClasses.put(entry.getKey(), uploadStructClass(entry.getKey()));
+                for (byte[] byteCodeOfNestedClass : entry.getValue()) {
+                    uploadStructClass(byteCodeOfNestedClass);
+                }
             }
 
             fernflower.decompileContext();
-            String decompiledClass = fernflower.getClassContent(structClass);
+
+            Map<byte[], String> decompiledClasses = new LinkedHashMap<>();
+            for (Map.Entry<byte[], StructClass> entry : structClasses.entrySet()) {
+                Deadline.checkCurrent();
+                decompiledClasses.put(entry.getKey(), fernflower.getClassContent(entry.getValue()));
+            }
+
+            Deadline.checkCurrent();
+            return decompiledClasses;
+        } finally {
             fernflower.clearContext();
+        }
+    }
+
+    /**
+     * Splits classes to batches where names of classes and their inner classes are unique,
+     * because struct context of Fernflower holds only one class for each name
+     * Class is added to the first batch which hasn't classes with the same names
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @return list of batches
+     */
+    private List<Map<byte[], Collection<byte[]>>> splitByClassNames(Map<byte[], Collection<byte[]>> byteCodes) {
+        List<Map<byte[], Collection<byte[]>>> batches = new ArrayList<>();
+        List<Set<String>> batchClassNames = new ArrayList<>();
+
+        for (Map.Entry<byte[], Collection<byte[]>> entry : byteCodes.entrySet()) {
+            Set<String> classNames = new HashSet<>();
+            classNames.add(ClassNameConverter.getClassName(entry.getKey()));
+            for (byte[] byteCodeOfNestedClass : entry.getValue()) {
+                classNames.add(ClassNameConverter.getClassName(byteCodeOfNestedClass));
+            }
+
+            int batchIndex = 0;
+            while (batchIndex < batches.size() && !Collections.disjoint(batchClassNames.get(batchIndex), classNames)) {
+                batchIndex++;
+            }
+
+            if (batchIndex == batches.size()) {
+                batches.add(new LinkedHashMap<>());
+                batchClassNames.add(new HashSet<>());
+            }
+
+            batches.get(batchIndex).put(entry.getKey(), entry.getValue());
+            batchClassNames.get(batchIndex).addAll(classNames);
+        }
+
+        if (batches.isEmpty()) {
+            batches.add(byteCodes);
+        }
+
+        return batches;
+    }
+
+    /**
+     * Checks byte code of classes for decompilation
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     */
+    private void checkByteCodes(Map<byte[], Collection<byte[]>> byteCodes) {
+        if (byteCodes == null) {
+            throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        }
+
+        for (Map.Entry<byte[], Collection<byte[]>> entry : byteCodes.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+            }
+        }
+    }
 
-            return decompiledClass;
+    /**
+     * Obtains options for current decompilation
+     * If current thread has {@link Deadline}, then max processing time of method
+     * is not greater than remaining time of deadline
+     *
+     * @param configuration compiled options of decompiler
+     * @return options for decompilation
+     */
+    private Map<String, Object> getConfiguration(Map<String, Object> configuration) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return configuration;
         }
 
-        throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        long remainingSeconds = Math.max(1, (deadline.getRemaining(TimeUnit.MILLISECONDS) + 999) / 1000);
+        long maxProcessingTime;
+        try {
+            maxProcessingTime = Long.parseLong(String.valueOf(configuration.get(MAX_PROCESSING_METHOD_KEY)));
+        } catch (NumberFormatException exception) {
+            maxProcessingTime = 0;
+        }
+
+        if (maxProcessingTime > 0 && maxProcessingTime <= remainingSeconds || remainingSeconds > Integer.MAX_VALUE) {
+            return configuration;
+        }
+
+        Map<String, Object> deadlineConfiguration = new HashMap<>(configuration);
+        deadlineConfiguration.put(MAX_PROCESSING_METHOD_KEY, String.valueOf(remainingSeconds));
+        return deadlineConfiguration;
     }
 
     /**
-     * Obtains the current configuration for decompiler
+     * Obtains decompilation session of current thread
+     * Session is recreated if options of decompiler were changed
      *
-     * @return decompiler configuration
+     * @return decompilation session
      */
-    private Map<String, Object> getConfiguration() {
-        if (configurationMap.isEmpty()) {
-            return getDefaultConfiguration();
-        } else {
-            return configurationMap;
+    private FernflowerSession getSession() {
+        FernflowerOptions currentOptions = options;
+
+        FernflowerSession session = sessions.get();
+        if (session == null || session.options != currentOptions) {
+            session = new FernflowerSession(currentOptions);
+            sessions.set(session);
         }
+
+        return session;
     }
 
     /**
@@ -124,8 +299,9 @@ public final class FernflowerDecompiler implements Decompiler {
      * Uploads byte code to current fernflower decompiler context
      *
      * @param byteCode byte code of class
+     * @return struct class of byte code
      */
-    private StructClass createStructClass(byte[] byteCode) {
+    private StructClass uploadStructClass(byte[] byteCode) {
         StructClass structClass = createClassStruct(byteCode);
 
         StructContext structContext = DecompilerContext.getStructContext();
@@ -154,21 +330,84 @@ public final class FernflowerDecompiler implements Decompiler {
         }
     }
 
+    /**
+     * Obtains version of Fernflower library
+     *
+     * @return version of decompiler
+     */
+    @Override
+    public String getVersion() {
+        return ImplementationVersionUtils.getImplementationVersion(Fernflower.class);
+    }
+
+    /**
+     * Sets configuration manager into decompiler
+     * Options are compiled only if configuration manager is changed
+     * or configuration of it was reloaded
+     *
+     * @param configurationManager current configuration manager
+     */
     @Override
     public void setConfigurationManager(ConfigurationManager configurationManager) {
         if (configurationManager != null) {
-            Configuration configuration = configurationManager.getCustomDecompilerConfiguration();
-            if (configuration != null) {
-                Map<String, Object> configurationMap = configuration.getConfiguration();
-                if (configurationMap != null && !configurationMap.isEmpty()) {
-                    Map<String, Object> defaultConfiguration = getDefaultConfiguration();
-                    defaultConfiguration.putAll(configurationMap);
-                    this.configurationMap.putAll(defaultConfiguration);
+            long epoch = configurationManager.getConfigurationEpoch();
+
+            FernflowerOptions currentOptions = options;
+            if (currentOptions.configurationManager != configurationManager || currentOptions.epoch != epoch) {
+                Map<String, Object> configuration = new HashMap<>(defaultConfiguration);
+                Configuration customConfiguration = configurationManager.getCustomDecompilerConfiguration();
+                if (customConfiguration != null) {
+                    Map<String, Object> configurationMap = customConfiguration.getConfiguration();
+                    if (configurationMap != null) {
+                        configuration.putAll(configurationMap);
+                    }
                 }
+
+                options = new FernflowerOptions(configurationManager, epoch, Collections.unmodifiableMap(configuration));
             }
         }
     }
 
+    /**
+     * Compiled options of decompiler for configuration epoch
+     */
+    private static class FernflowerOptions {
+
+        private final ConfigurationManager configurationManager;
+
+        private final long epoch;
+
+        private final Map<String, Object> configuration;
+
+        private FernflowerOptions(ConfigurationManager configurationManager,
+                                  long epoch,
+                                  Map<String, Object> configuration) {
+            this.configurationManager = configurationManager;
+            this.epoch = epoch;
+            this.configuration = configuration;
+        }
+    }
+
+    /**
+     * Decompilation session of one thread
+     * Holds logger and saver which are reused
+     * by all decompilations with the same options
+     */
+    private static class FernflowerSession {
+
+        private final FernflowerOptions options;
+
+        private final IFernflowerLogger logger;
+
+        private final IResultSaver saver;
+
+        private FernflowerSession(FernflowerOptions options) {
+            this.options = options;
+            this.logger = new PrintStreamLogger(System.out);
+            this.saver = new NothingSaver(null, null, logger);
+        }
+    }
+
     /**
      * Class uses for obtaining decompiled code as string
      */
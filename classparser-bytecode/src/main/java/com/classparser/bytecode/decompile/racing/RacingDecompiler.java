@@ -0,0 +1,288 @@
+package com.classparser.bytecode.decompile.racing;
+
+import com.classparser.bytecode.api.Decompiler;
+import com.classparser.bytecode.configuration.ConfigurationManager;
+import com.classparser.bytecode.exception.decompile.DecompilationException;
+import com.classparser.bytecode.exception.decompile.DecompilationTimeoutException;
+import com.classparser.bytecode.utils.Deadline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Composite decompiler which passes the same byte code to several decompilers
+ * at the same time and returns the first successful result
+ * Result is successful if decompiler didn't throw exception and returned
+ * not empty code, other decompilations are cancelled after that
+ * <p>
+ * Decompilers are run in executor which should never queue tasks,
+ * by default shared thread pool bounded by count of processors is used
+ * If executor rejects decompilation, then racing is performed only by accepted
+ * decompilations, if all of them were rejected, then the first decompiler
+ * is run in current thread
+ * <p>
+ * Other decompilations are stopped by cancellation of {@link Deadline}
+ * which is checked by decompilers when they load referenced classes,
+ * work between such checks can't be stopped, so cancelled decompilation
+ * may be finished in background
+ * Threads of decompilations are never interrupted, because interruption
+ * closes channels of shared caches which are used by decompilers
+ * Racing trades CPU for latency, so it is useful only if machine has idle processors
+ * <p>
+ * This class is thread safe if all decompilers are thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class RacingDecompiler implements Decompiler {
+
+    private final List<Decompiler> decompilers;
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param decompilers decompilers which are run in parallel
+     */
+    public RacingDecompiler(Decompiler... decompilers) {
+        this(Arrays.asList(decompilers));
+    }
+
+    /**
+     * Constructor for init instance
+     *
+     * @param decompilers decompilers which are run in parallel
+     */
+    public RacingDecompiler(List<Decompiler> decompilers) {
+        this(decompilers, RacingExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * Constructor for init instance
+     *
+     * @param decompilers decompilers which are run in parallel
+     * @param executor    executor for decompilations
+     */
+    public RacingDecompiler(List<Decompiler> decompilers, ExecutorService executor) {
+        if (decompilers == null || decompilers.isEmpty() || decompilers.contains(null)) {
+            throw new IllegalArgumentException("Decompilers for racing can't be empty or contain a null");
+        }
+
+        if (executor == null) {
+            throw new NullPointerException("Executor for racing of decompilers can't be a null");
+        }
+
+        this.decompilers = Collections.unmodifiableList(new ArrayList<>(decompilers));
+        this.executor = executor;
+    }
+
+    /**
+     * Obtains decompilers which are run in parallel
+     *
+     * @return unmodifiable list of decompilers
+     */
+    public List<Decompiler> getDecompilers() {
+        return decompilers;
+    }
+
+    @Override
+    public String decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes) {
+        return race(decompiler -> decompiler.decompile(byteCode, nestedClassesByteCodes),
+                decompiledCode -> decompiledCode != null && !decompiledCode.isEmpty());
+    }
+
+    /**
+     * Passes the whole batch to each decompiler
+     * Result of decompiler is successful only if code of all classes was obtained
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @return map where key is byte code of class and value is decompiled code
+     */
+    @Override
+    public Map<byte[], String> decompileAll(Map<byte[], Collection<byte[]>> byteCodes) {
+        return race(decompiler -> decompiler.decompileAll(byteCodes),
+                decompiledClasses -> isDecompiledAll(byteCodes, decompiledClasses));
+    }
+
+    @Override
+    public void setConfigurationManager(ConfigurationManager configurationManager) {
+        for (Decompiler decompiler : decompilers) {
+            decompiler.setConfigurationManager(configurationManager);
+        }
+    }
+
+    /**
+     * Runs decompilation in all decompilers and waits the first successful result
+     * Single decompiler is run in current thread
+     * Decompilations are run with child of {@link Deadline} of current thread,
+     * child is cancelled when racing is finished, so other decompilations are stopped
+     *
+     * @param decompilation decompilation performed by one decompiler
+     * @param successful    checks if result of decompiler is successful
+     * @param <T>           type of result
+     * @return the first successful result
+     * @throws DecompilationException if all decompilers were failed
+     */
+    private <T> T race(Function<Decompiler, T> decompilation, Predicate<T> successful) {
+        if (decompilers.size() == 1) {
+            return decompilation.apply(decompilers.get(0));
+        }
+
+        Deadline deadline = Deadline.current();
+        Deadline racingDeadline = deadline != null ? deadline.createChild() : Deadline.unbounded();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger runningDecompilations = new AtomicInteger(decompilers.size());
+
+        List<Future<?>> decompilations = new ArrayList<>(decompilers.size());
+        try {
+            for (Decompiler decompiler : decompilers) {
+                try {
+                    decompilations.add(executor.submit(() -> {
+                        try {
+                            T decompiledCode = racingDeadline.call(() -> decompilation.apply(decompiler));
+                            if (successful.test(decompiledCode)) {
+                                result.complete(decompiledCode);
+                            } else {
+                                String decompilerName = decompiler.getClass().getName();
+                                failures.add(new DecompilationException(decompilerName + " returned empty result"));
+                            }
+                        } catch (Throwable throwable) {
+                            failures.add(throwable);
+                        } finally {
+                            completeIfFailed(result, failures, runningDecompilations);
+                        }
+                    }));
+                } catch (RejectedExecutionException exception) {
+                    failures.add(exception);
+                    completeIfFailed(result, failures, runningDecompilations);
+                }
+            }
+
+            if (decompilations.isEmpty()) {
+                return decompilation.apply(decompilers.get(0));
+            }
+
+            if (deadline != null) {
+                return result.get(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+
+            return result.get();
+        } catch (TimeoutException exception) {
+            throw new DecompilationTimeoutException("Racing of decompilers wasn't completed in "
+                                                    + deadline.getTimeout(TimeUnit.MILLISECONDS) + " ms", exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new DecompilationException("Racing of decompilers was interrupted", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof DecompilationException) {
+                throw (DecompilationException) cause;
+            }
+
+            throw new DecompilationException("Racing of decompilers was failed", cause);
+        } finally {
+            racingDeadline.cancel();
+            for (Future<?> future : decompilations) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Completes racing by failure if the last decompilation was finished without result
+     *
+     * @param result                result of racing
+     * @param failures              failures of decompilers
+     * @param runningDecompilations count of running decompilations
+     * @param <T>                   type of result
+     */
+    private <T> void completeIfFailed(CompletableFuture<T> result, List<Throwable> failures,
+                                      AtomicInteger runningDecompilations) {
+        if (runningDecompilations.decrementAndGet() == 0 && !result.isDone()) {
+            result.completeExceptionally(createException(failures));
+        }
+    }
+
+    /**
+     * Creates exception contains failures of all decompilers
+     *
+     * @param failures failures of decompilers
+     * @return decompilation exception
+     */
+    private DecompilationException createException(List<Throwable> failures) {
+        DecompilationException exception;
+        synchronized (failures) {
+            Throwable cause = failures.isEmpty() ? null : failures.get(0);
+            exception = new DecompilationException("None of " + decompilers.size() + " decompilers could decompile class", cause);
+            for (Throwable failure : failures.subList(Math.min(1, failures.size()), failures.size())) {
+                exception.addSuppressed(failure);
+            }
+        }
+
+        return exception;
+    }
+
+    /**
+     * Checks if decompiler returned code of all classes of batch
+     *
+     * @param byteCodes         byte code of batch
+     * @param decompiledClasses result of decompiler
+     * @return true if code of each class is not empty
+     */
+    private boolean isDecompiledAll(Map<byte[], Collection<byte[]>> byteCodes, Map<byte[], String> decompiledClasses) {
+        if (decompiledClasses == null) {
+            return false;
+        }
+
+        for (byte[] byteCode : byteCodes.keySet()) {
+            String decompiledCode = decompiledClasses.get(byteCode);
+            if (decompiledCode == null || decompiledCode.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Holder of default executor for racing of decompilers
+     * Executor is shared by all racing decompilers, count of its threads
+     * is bounded by count of processors, tasks are never queued,
+     * so tasks above this bound are rejected
+     */
+    private static class RacingExecutorHolder {
+
+        private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+        private static final int MAX_THREAD_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        private static final long KEEP_ALIVE_SECONDS = 60;
+
+        private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, MAX_THREAD_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "classparser-racing-decompiler-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.classparser.bytecode.exception.decompile;
+
+/**
+ * Unchecked exception can be throws when deadline of parsing
+ * was expired before decompilation was completed
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class DecompilationTimeoutException extends DecompilationException {
+
+    /**
+     * Constructor with parameter store error message in exception
+     *
+     * @param message error message
+     */
+    public DecompilationTimeoutException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor with parameter store error message in exception and
+     * cause of root exception
+     *
+     * @param message error message
+     * @param cause   cause of exception
+     */
+    public DecompilationTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
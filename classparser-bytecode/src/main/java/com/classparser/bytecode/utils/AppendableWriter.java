@@ -0,0 +1,90 @@
+package com.classparser.bytecode.utils;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Adapter of any {@link Appendable} to {@link Writer} API
+ * Uses by decompilers which can write decompiled code only to writer,
+ * characters are passed to appendable without intermediate buffers
+ * <p>
+ * Closing of writer only flushes appendable, because appendable
+ * is owned by caller
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class AppendableWriter extends Writer {
+
+    private final Appendable output;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param output any appendable
+     */
+    private AppendableWriter(Appendable output) {
+        this.output = output;
+    }
+
+    /**
+     * Obtains writer for appendable
+     *
+     * @param output any appendable
+     * @return appendable itself if it is writer or adapter of appendable
+     */
+    public static Writer of(Appendable output) {
+        if (output instanceof Writer) {
+            return (Writer) output;
+        }
+
+        return new AppendableWriter(output);
+    }
+
+    @Override
+    public void write(int character) throws IOException {
+        output.append((char) character);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        output.append(CharBuffer.wrap(buffer, offset, length));
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        output.append(string, offset, offset + length);
+    }
+
+    @Override
+    public Writer append(CharSequence sequence) throws IOException {
+        output.append(sequence);
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence sequence, int start, int end) throws IOException {
+        output.append(sequence, start, end);
+        return this;
+    }
+
+    @Override
+    public Writer append(char character) throws IOException {
+        output.append(character);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (output instanceof Flushable) {
+            ((Flushable) output).flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.classparser.bytecode.utils;
+
+import com.classparser.bytecode.configuration.ConfigurationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * More safe implementation of constant pool reader uses byte code of class
+ * Class constants are selected by tags with {@link ClassFileScanner} and
+ * loaded without initialization by class loader of scanned class
+ * <p>
+ * Package private access
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+final class ByteCodeConstantPoolReader implements ConstantPoolReader {
+
+    private final ConfigurationManager configurationManager;
+
+    ByteCodeConstantPoolReader(ConfigurationManager configurationManager) {
+        this.configurationManager = configurationManager;
+    }
+
+    @Override
+    public boolean isSupported() {
+        return true;
+    }
+
+    @Override
+    public List<Class<?>> getClasses(Class<?> clazz) {
+        if (clazz.isArray() || clazz.isPrimitive()) {
+            return Collections.emptyList();
+        }
+
+        byte[] byteCode = configurationManager.getByteCodeCollector().getByteCode(clazz);
+        if (byteCode == null) {
+            return Collections.emptyList();
+        }
+
+        List<Class<?>> classes = new ArrayList<>();
+        for (String className : new ClassFileScanner(byteCode).getClassConstantNames()) {
+            try {
+                classes.add(Class.forName(className.replace('/', '.'), false, clazz.getClassLoader()));
+            } catch (java.lang.ClassNotFoundException | LinkageError ignore) {
+            }
+        }
+
+        return classes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,420 @@
+package com.classparser.bytecode.utils;
+
+import com.classparser.bytecode.exception.ByteCodeParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Light reader of class file structure
+ * Scanner computes offsets of constant pool entries once and reads
+ * only requested items directly from byte code without copying
+ * and without loading of any classes
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class ClassFileScanner {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int UTF8 = 1;
+
+    private static final int INTEGER = 3;
+
+    private static final int FLOAT = 4;
+
+    private static final int LONG = 5;
+
+    private static final int DOUBLE = 6;
+
+    private static final int CLASS = 7;
+
+    private static final int STRING = 8;
+
+    private static final int FIELD_REF = 9;
+
+    private static final int METHOD_REF = 10;
+
+    private static final int INTERFACE_METHOD_REF = 11;
+
+    private static final int NAME_AND_TYPE = 12;
+
+    private static final int METHOD_HANDLE = 15;
+
+    private static final int METHOD_TYPE = 16;
+
+    private static final int DYNAMIC = 17;
+
+    private static final int INVOKE_DYNAMIC = 18;
+
+    private static final int MODULE = 19;
+
+    private static final int PACKAGE = 20;
+
+    private static final String INNER_CLASSES_ATTRIBUTE = "InnerClasses";
+
+    private static final String NEST_MEMBERS_ATTRIBUTE = "NestMembers";
+
+    private final byte[] byteCode;
+
+    private final int[] constantOffsets;
+
+    private final int headerOffset;
+
+    /**
+     * Constructor for init instance
+     * Reads offsets of all constant pool entries
+     *
+     * @param byteCode byte code of class
+     */
+    public ClassFileScanner(byte[] byteCode) {
+        this.byteCode = byteCode;
+        try {
+            if (readInt(byteCode, 0) != MAGIC) {
+                throw new ByteCodeParserException("Byte code is not a class file");
+            }
+
+            this.constantOffsets = new int[readUnsignedShort(byteCode, 8)];
+            this.headerOffset = readConstantOffsets(byteCode, constantOffsets);
+        } catch (ArrayIndexOutOfBoundsException exception) {
+            throw new ByteCodeParserException("Byte code of class is truncated", exception);
+        }
+    }
+
+    /**
+     * Reads name of class in internal form without creation of scanner
+     * Constant pool is walked without table of offsets, only up to
+     * required constants, and only one UTF8 constant is decoded
+     *
+     * @param byteCode byte code of class
+     * @return class name
+     */
+    public static String readClassName(byte[] byteCode) {
+        try {
+            if (readInt(byteCode, 0) != MAGIC) {
+                throw new ClassFormatError("Invalid java byte code of class");
+            }
+
+            int headerOffset = skipConstants(byteCode, readUnsignedShort(byteCode, 8));
+            int classIndex = readUnsignedShort(byteCode, headerOffset + 2);
+            int nameIndex = readUnsignedShort(byteCode, skipConstants(byteCode, classIndex) + 1);
+
+            return decodeUtf8(byteCode, skipConstants(byteCode, nameIndex) + 1);
+        } catch (ArrayIndexOutOfBoundsException exception) {
+            throw new ByteCodeParserException("Constant pool is broken", exception);
+        }
+    }
+
+    /**
+     * Checks if byte code contains whole class file
+     * Structure of class is walked up to the end of the last attribute,
+     * so byte code of file which is still being written is detected
+     *
+     * @param byteCode byte code of class
+     * @return true if byte code is complete class file
+     */
+    public static boolean isComplete(byte[] byteCode) {
+        try {
+            if (byteCode.length < 10 || readInt(byteCode, 0) != MAGIC) {
+                return false;
+            }
+
+            int offset = skipConstants(byteCode, readUnsignedShort(byteCode, 8)) + 6;
+            offset += 2 + readUnsignedShort(byteCode, offset) * 2;
+            offset = skipMembers(byteCode, offset);
+            offset = skipMembers(byteCode, offset);
+            offset = skipAttributes(byteCode, offset);
+
+            return offset == byteCode.length;
+        } catch (ArrayIndexOutOfBoundsException | ByteCodeParserException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Obtains name of class in internal form
+     * <p>
+     * com/company/ClassName
+     * </p>
+     *
+     * @return class name
+     */
+    public String getClassName() {
+        return getClassConstantName(readUnsignedShort(byteCode, headerOffset + 2));
+    }
+
+    /**
+     * Obtains names of all class constants except array types
+     * Entries of constant pool are selected by tag, other entries are skipped
+     *
+     * @return list of class names in internal form
+     */
+    public List<String> getClassConstantNames() {
+        List<String> classNames = new ArrayList<>();
+
+        for (int index = 1; index < constantOffsets.length; index++) {
+            int offset = constantOffsets[index];
+            if (offset != 0 && (byteCode[offset - 1] & 0xFF) == CLASS) {
+                String className = getClassConstantName(index);
+                if (!className.startsWith("[")) {
+                    classNames.add(className);
+                }
+            }
+        }
+
+        return classNames;
+    }
+
+    /**
+     * Obtains names of classes are nested in this class
+     * Names are taken from "NestMembers" attribute if it is present and
+     * from "InnerClasses" attribute, where only member classes of this class
+     * and local and anonymous classes declared in this class are selected
+     *
+     * @return list of class names in internal form
+     */
+    public List<String> getNestedClassNames() {
+        try {
+            return readNestedClassNames();
+        } catch (ArrayIndexOutOfBoundsException exception) {
+            throw new ByteCodeParserException("Byte code of class " + getClassName() + " is truncated", exception);
+        }
+    }
+
+    /**
+     * Reads attributes of class for searching of nested classes
+     *
+     * @return list of class names in internal form
+     */
+    private List<String> readNestedClassNames() {
+        String className = getClassName();
+        String innerClassPrefix = className + '$';
+
+        int offset = headerOffset + 6;
+        int interfacesCount = readUnsignedShort(byteCode, offset);
+        offset += 2 + interfacesCount * 2;
+        offset = skipMembers(byteCode, offset);
+        offset = skipMembers(byteCode, offset);
+
+        List<String> nestedClassNames = new ArrayList<>();
+        int attributesCount = readUnsignedShort(byteCode, offset);
+        offset += 2;
+        for (int index = 0; index < attributesCount; index++) {
+            String attributeName = readUtf8(readUnsignedShort(byteCode, offset));
+            int attributeLength = readInt(byteCode, offset + 2);
+            int attributeOffset = offset + 6;
+
+            if (NEST_MEMBERS_ATTRIBUTE.equals(attributeName)) {
+                int membersCount = readUnsignedShort(byteCode, attributeOffset);
+                for (int member = 0; member < membersCount; member++) {
+                    addName(nestedClassNames, getClassConstantName(readUnsignedShort(byteCode, attributeOffset + 2 + member * 2)));
+                }
+            } else if (INNER_CLASSES_ATTRIBUTE.equals(attributeName)) {
+                int classesCount = readUnsignedShort(byteCode, attributeOffset);
+                for (int entry = 0; entry < classesCount; entry++) {
+                    int entryOffset = attributeOffset + 2 + entry * 8;
+                    String innerClassName = getClassConstantName(readUnsignedShort(byteCode, entryOffset));
+                    int outerClassIndex = readUnsignedShort(byteCode, entryOffset + 2);
+
+                    boolean isMemberClass = outerClassIndex != 0 && className.equals(getClassConstantName(outerClassIndex));
+                    boolean isLocalClass = outerClassIndex == 0 && innerClassName.startsWith(innerClassPrefix);
+                    if (isMemberClass || isLocalClass) {
+                        addName(nestedClassNames, innerClassName);
+                    }
+                }
+            }
+
+            offset = attributeOffset + attributeLength;
+        }
+
+        return nestedClassNames.isEmpty() ? Collections.emptyList() : nestedClassNames;
+    }
+
+    /**
+     * Skips table of fields or methods
+     *
+     * @param byteCode byte code of class
+     * @param offset   offset of members count
+     * @return offset after the last member
+     */
+    private static int skipMembers(byte[] byteCode, int offset) {
+        int membersCount = readUnsignedShort(byteCode, offset);
+        offset += 2;
+        for (int member = 0; member < membersCount; member++) {
+            offset = skipAttributes(byteCode, offset + 6);
+        }
+
+        return offset;
+    }
+
+    /**
+     * Skips table of attributes
+     *
+     * @param byteCode byte code of class
+     * @param offset   offset of attributes count
+     * @return offset after the last attribute
+     */
+    private static int skipAttributes(byte[] byteCode, int offset) {
+        int attributesCount = readUnsignedShort(byteCode, offset);
+        offset += 2;
+        for (int attribute = 0; attribute < attributesCount; attribute++) {
+            offset += 6 + readInt(byteCode, offset + 2);
+        }
+
+        return offset;
+    }
+
+    /**
+     * Adds name to list if it was not added before
+     *
+     * @param names list of names
+     * @param name  any name
+     */
+    private void addName(List<String> names, String name) {
+        if (!names.contains(name)) {
+            names.add(name);
+        }
+    }
+
+    /**
+     * Obtains size of constant pool entry without tag
+     *
+     * @param byteCode byte code of class
+     * @param tag      tag of constant
+     * @param offset   offset of constant content
+     * @return size of constant in bytes
+     */
+    private static int getConstantSize(byte[] byteCode, int tag, int offset) {
+        switch (tag) {
+            case UTF8:
+                return 2 + readUnsignedShort(byteCode, offset);
+            case CLASS:
+            case STRING:
+            case METHOD_TYPE:
+            case MODULE:
+            case PACKAGE:
+                return 2;
+            case METHOD_HANDLE:
+                return 3;
+            case INTEGER:
+            case FLOAT:
+            case FIELD_REF:
+            case METHOD_REF:
+            case INTERFACE_METHOD_REF:
+            case NAME_AND_TYPE:
+            case DYNAMIC:
+            case INVOKE_DYNAMIC:
+                return 4;
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                throw new ByteCodeParserException("Unknown constant pool tag: " + tag);
+        }
+    }
+
+    /**
+     * Obtains name of class constant
+     *
+     * @param index index of class constant in constant pool
+     * @return class name in internal form
+     */
+    private String getClassConstantName(int index) {
+        return readUtf8(readUnsignedShort(byteCode, constantOffsets[index]));
+    }
+
+    /**
+     * Reads string from UTF8 constant
+     *
+     * @param index index of UTF8 constant in constant pool
+     * @return string value of constant
+     */
+    private String readUtf8(int index) {
+        return decodeUtf8(byteCode, constantOffsets[index]);
+    }
+
+    /**
+     * Walks constant pool and records offset of content of each constant
+     * Offsets of unusable entries after long and double constants are left zero
+     *
+     * @param byteCode        byte code of class
+     * @param constantOffsets array sized by count of constant pool entries
+     * @return offset of class header after constant pool
+     */
+    private static int readConstantOffsets(byte[] byteCode, int[] constantOffsets) {
+        int offset = 10;
+        for (int index = 1; index < constantOffsets.length; index++) {
+            constantOffsets[index] = offset + 1;
+            int tag = byteCode[offset] & 0xFF;
+            offset += 1 + getConstantSize(byteCode, tag, offset + 1);
+            if (tag == LONG || tag == DOUBLE) {
+                index++;
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Walks constant pool without recording of offsets
+     *
+     * @param byteCode      byte code of class
+     * @param constantIndex index of constant where walk is stopped
+     * @return offset of tag of constant or offset of class header
+     * if index is equal to count of constants
+     */
+    private static int skipConstants(byte[] byteCode, int constantIndex) {
+        int offset = 10;
+        for (int index = 1; index < constantIndex; index++) {
+            int tag = byteCode[offset] & 0xFF;
+            offset += 1 + getConstantSize(byteCode, tag, offset + 1);
+            if (tag == LONG || tag == DOUBLE) {
+                index++;
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Decodes UTF8 constant located at offset
+     * Strings contain only ASCII characters are decoded without
+     * creation of intermediate streams
+     *
+     * @param byteCode byte code of class
+     * @param offset   offset of constant content after tag
+     * @return string value of constant
+     */
+    private static String decodeUtf8(byte[] byteCode, int offset) {
+        int length = readUnsignedShort(byteCode, offset);
+
+        for (int position = offset + 2; position < offset + 2 + length; position++) {
+            if (byteCode[position] <= 0) {
+                try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(byteCode, offset, length + 2))) {
+                    return stream.readUTF();
+                } catch (IOException exception) {
+                    throw new ByteCodeParserException("Can't read constant pool string", exception);
+                }
+            }
+        }
+
+        return new String(byteCode, offset + 2, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int readUnsignedShort(byte[] byteCode, int offset) {
+        return ((byteCode[offset] & 0xFF) << 8) | (byteCode[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] byteCode, int offset) {
+        return ((byteCode[offset] & 0xFF) << 24)
+                | ((byteCode[offset + 1] & 0xFF) << 16)
+                | ((byteCode[offset + 2] & 0xFF) << 8)
+                | (byteCode[offset + 3] & 0xFF);
+    }
+}
\ No newline at end of file
@@ -1,11 +1,7 @@
 package com.classparser.bytecode.utils;
 
-import com.classparser.bytecode.exception.ByteCodeParserException;
-
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,8 +14,6 @@ import java.util.Map;
  */
 public class ClassNameConverter {
 
-    private static final int MAGIC = 0xCAFEBABE;
-
     private static final String CLASS_FILE_SUFFIX = ".class";
 
     private static final Map<String, String> PRIMITIVE_NAMES = new HashMap<String, String>() {{
@@ -32,6 +26,8 @@ public class ClassNameConverter {
         put("J", "long");
     }};
 
+    private static final ThreadLocal<LastClassName> LAST_CLASS_NAME = new ThreadLocal<>();
+
     /**
      * Obtains full java class name from class instance
      * Resolves name for anonymous class are defined by the Unsafe instance
@@ -64,7 +60,6 @@ public class ClassNameConverter {
             }
         }
 
-
         return className;
     }
 
@@ -182,58 +177,37 @@ public class ClassNameConverter {
      * <p>
      * com/company/ClassName
      * </p>
+     * Name of the last byte code is remembered by each thread,
+     * so repeated requests for the same byte code array don't read it again
      *
      * @param byteCode byte code of class
      * @return class name
      */
     public static String getClassName(byte[] byteCode) {
-        try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(byteCode))) {
-            if (stream.readInt() == MAGIC) {
-                stream.skipBytes(4);
-
-                int sizeOfPool = stream.readUnsignedShort();
-                Object[] constants = new Object[sizeOfPool];
-
-                for (int i = 1; i < sizeOfPool; i++) {
-                    switch (stream.readUnsignedByte()) {
-                        case 1:
-                            constants[i] = stream.readUTF();
-                            break;
-                        case 3: case 4: case 9: case 10: case 11: case 12: case 18:
-                            stream.skipBytes(4);
-                            break;
-                        case 5: case 6:
-                            stream.skipBytes(8);
-                            i++;
-                            break;
-                        case 7:
-                            constants[i] = stream.readUnsignedShort();
-                            break;
-                        case 8: case 16:
-                            stream.skipBytes(2);
-                            break;
-                        case 15:
-                            stream.skipBytes(3);
-                            break;
-                    }
-                }
+        LastClassName lastClassName = LAST_CLASS_NAME.get();
+        if (lastClassName != null && lastClassName.byteCode.get() == byteCode) {
+            return lastClassName.className;
+        }
 
-                stream.skipBytes(2);
+        String className = ClassFileScanner.readClassName(byteCode);
+        LAST_CLASS_NAME.set(new LastClassName(byteCode, className));
 
-                int referenceToClassStorageIndex = stream.readUnsignedShort();
-                int indexOfClass = (int) constants[referenceToClassStorageIndex];
-                Object className = constants[indexOfClass];
-                if (className != null) {
-                    return className.toString();
-                }
+        return className;
+    }
+
+    /**
+     * Class name of the last byte code read by thread
+     * Byte code is weakly referenced and isn't retained by memo
+     */
+    private static class LastClassName {
 
+        private final WeakReference<byte[]> byteCode;
 
-                throw new ClassFormatError("Can't obtain class name from byte code!");
-            }
+        private final String className;
 
-            throw new ClassFormatError("Invalid java byte code of class");
-        } catch (IOException exception) {
-            throw new ByteCodeParserException("Constant pool is broken", exception);
+        private LastClassName(byte[] byteCode, String className) {
+            this.byteCode = new WeakReference<>(byteCode);
+            this.className = className;
         }
     }
 }
\ No newline at end of file
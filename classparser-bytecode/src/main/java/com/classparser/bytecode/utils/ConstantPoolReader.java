@@ -0,0 +1,30 @@
+package com.classparser.bytecode.utils;
+
+import java.util.List;
+
+/**
+ * Reader of classes are referenced from constant pool of class
+ * Implementations should skip entries of constant pool which
+ * are not class constants by their tags
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public interface ConstantPoolReader {
+
+    /**
+     * Checks if reader can be used in current JVM
+     *
+     * @return true if reader is supported
+     */
+    boolean isSupported();
+
+    /**
+     * Obtains classes are referenced from constant pool of class
+     * Class constants which can't be resolved are skipped
+     *
+     * @param clazz any class
+     * @return list of referenced classes
+     */
+    List<Class<?>> getClasses(Class<?> clazz);
+}
\ No newline at end of file
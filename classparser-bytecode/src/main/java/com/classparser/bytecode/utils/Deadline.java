@@ -0,0 +1,206 @@
+package com.classparser.bytecode.utils;
+
+import com.classparser.bytecode.exception.decompile.DecompilationTimeoutException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of parsing of class
+ * Deadline is bound to thread which performs parsing, so byte code collectors,
+ * loaders of referenced classes and decompilers can check it
+ * by {@link #checkCurrent()} without passing of deadline through their API
+ * <p>
+ * Child deadline has time of its parent and is expired together with it,
+ * but it can be cancelled separately, so part of parsing performed
+ * in other threads can be stopped without stopping of whole parsing
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private static final long UNBOUNDED_TIMEOUT = Long.MAX_VALUE;
+
+    private final long timeoutNanos;
+
+    private final long deadlineNanos;
+
+    private final Deadline parent;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param timeoutNanos  timeout in nanoseconds
+     * @param deadlineNanos moment of expiration by {@link System#nanoTime()}
+     * @param parent        parent deadline or null
+     */
+    private Deadline(long timeoutNanos, long deadlineNanos, Deadline parent) {
+        this.timeoutNanos = timeoutNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.parent = parent;
+    }
+
+    /**
+     * Creates deadline which is expired after timeout from current moment
+     *
+     * @param timeout timeout value
+     * @param unit    unit of timeout
+     * @return deadline instance
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout can't be negative: " + timeout);
+        }
+
+        if (unit == null) {
+            throw new NullPointerException("Unit of timeout can't be a null");
+        }
+
+        long timeoutNanos = unit.toNanos(timeout);
+        return new Deadline(timeoutNanos, System.nanoTime() + timeoutNanos, null);
+    }
+
+    /**
+     * Creates deadline which is never expired by time
+     * Such deadline is expired only by {@link #cancel()}
+     *
+     * @return deadline instance
+     */
+    public static Deadline unbounded() {
+        return new Deadline(UNBOUNDED_TIMEOUT, 0, null);
+    }
+
+    /**
+     * Obtains deadline bound to current thread
+     *
+     * @return deadline or null if current thread hasn't deadline
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Checks deadline bound to current thread
+     * Should be called by long operations of parsing between steps
+     *
+     * @throws DecompilationTimeoutException if deadline is expired or thread was interrupted
+     */
+    public static void checkCurrent() {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.check();
+        }
+    }
+
+    /**
+     * Performs task in current thread with this deadline
+     * Previous deadline of thread is restored after task
+     *
+     * @param task any task
+     * @param <T>  type of result
+     * @return result of task
+     */
+    public <T> T call(Supplier<T> task) {
+        Deadline previousDeadline = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previousDeadline != null) {
+                CURRENT.set(previousDeadline);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Creates child deadline
+     * Child is expired if this deadline is expired,
+     * cancellation of child doesn't affect this deadline
+     *
+     * @return child deadline
+     */
+    public Deadline createChild() {
+        return new Deadline(timeoutNanos, deadlineNanos, this);
+    }
+
+    /**
+     * Checks this deadline
+     *
+     * @throws DecompilationTimeoutException if deadline is expired or thread was interrupted
+     */
+    public void check() {
+        if (isCancelled()) {
+            throw new DecompilationTimeoutException("Parsing was cancelled");
+        }
+
+        if (isExpired()) {
+            throw new DecompilationTimeoutException("Parsing wasn't completed in " + getTimeout(TimeUnit.MILLISECONDS) + " ms");
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            throw new DecompilationTimeoutException("Parsing was interrupted");
+        }
+    }
+
+    /**
+     * Expires deadline before its time
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks if deadline is expired or cancelled
+     *
+     * @return true if deadline is expired
+     */
+    public boolean isExpired() {
+        return isCancelled() || timeoutNanos != UNBOUNDED_TIMEOUT && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Obtains timeout of deadline
+     *
+     * @param unit unit of timeout
+     * @return timeout value
+     */
+    public long getTimeout(TimeUnit unit) {
+        return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Obtains time remaining before deadline
+     *
+     * @param unit unit of time
+     * @return remaining time or zero if deadline is expired
+     */
+    public long getRemaining(TimeUnit unit) {
+        if (isCancelled()) {
+            return 0;
+        }
+
+        if (timeoutNanos == UNBOUNDED_TIMEOUT) {
+            return unit.convert(UNBOUNDED_TIMEOUT, TimeUnit.NANOSECONDS);
+        }
+
+        return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Checks if this deadline or one of its parents was cancelled
+     *
+     * @return true if deadline was cancelled
+     */
+    private boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled();
+    }
+}
\ No newline at end of file
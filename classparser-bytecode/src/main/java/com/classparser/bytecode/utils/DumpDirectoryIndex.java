@@ -0,0 +1,345 @@
+package com.classparser.bytecode.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of class files in dump directory
+ * Directory is scanned only once, after that index is kept actual
+ * by the {@link WatchService} in background daemon thread
+ * <p>
+ * Class files are kept in directory, because it is the only source
+ * of byte code of dumped classes, they are read again each time
+ * byte code is requested and removed only at shutdown of JVM
+ * File which is still being written by JVM isn't served
+ * <p>
+ * While dump directory is absent, its existence is checked
+ * not more often than once in interval
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class DumpDirectoryIndex {
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private static final long WATCH_INTERVAL_MILLIS = 1000;
+
+    private static final long START_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path root;
+
+    private final Map<String, DumpEntry> entries;
+
+    private final Map<WatchKey, Path> directories;
+
+    private final Lock lock;
+
+    private volatile WatchService watchService;
+
+    private volatile long nextStartTime;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param root path to dump directory
+     */
+    public DumpDirectoryIndex(Path root) {
+        this.root = root;
+        this.entries = new ConcurrentHashMap<>();
+        this.directories = new ConcurrentHashMap<>();
+        this.lock = new ReentrantLock();
+        this.nextStartTime = System.nanoTime();
+    }
+
+    /**
+     * Obtains byte code of class from dump directory
+     * Byte code is returned only if file contains complete class file
+     *
+     * @param entryName relative path to class file with '/' separators
+     * @return byte code of class or null if class file is absent or not completely written
+     * @throws IOException if class file can't be read
+     */
+    public byte[] getByteCode(String entryName) throws IOException {
+        if (!isStarted() && !tryStart()) {
+            return null;
+        }
+
+        DumpEntry entry = entries.get(entryName);
+        if (entry == null) {
+            processPendingEvents();
+            entry = entries.get(entryName);
+        }
+
+        if (entry != null) {
+            try {
+                byte[] byteCode = Files.readAllBytes(entry.file);
+                return ClassFileScanner.isComplete(byteCode) ? byteCode : null;
+            } catch (NoSuchFileException exception) {
+                entries.remove(entryName, entry);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Obtains count of indexed class files
+     *
+     * @return count of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Checks if directory was scanned and watching is started
+     *
+     * @return true if index is started
+     */
+    private boolean isStarted() {
+        return watchService != null;
+    }
+
+    /**
+     * Starts index if interval after the previous attempt has passed
+     *
+     * @return true if index was started
+     * @throws IOException if directory can't be scanned
+     */
+    private boolean tryStart() throws IOException {
+        long currentTime = System.nanoTime();
+        if (currentTime - nextStartTime < 0) {
+            return false;
+        }
+
+        nextStartTime = currentTime + START_INTERVAL_NANOS;
+        return start();
+    }
+
+    /**
+     * Scans dump directory and starts background watching of it
+     * Dump directory is created by JVM only with first dumped class,
+     * so starting is repeated while directory is absent
+     *
+     * @return true if index was started
+     * @throws IOException if directory can't be scanned
+     */
+    private boolean start() throws IOException {
+        lock.lock();
+        try {
+            if (watchService == null && Files.isDirectory(root)) {
+                WatchService service = root.getFileSystem().newWatchService();
+                try {
+                    registerDirectory(service, root);
+                } catch (IOException exception) {
+                    service.close();
+                    throw exception;
+                }
+
+                watchService = service;
+
+                Thread watcher = new Thread(this::watch, "classparser-dump-directory-watcher");
+                watcher.setDaemon(true);
+                watcher.start();
+            }
+
+            return watchService != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers directory and all its subdirectories in watch service
+     * and adds all found class files to index
+     *
+     * @param service   watch service
+     * @param directory any directory inside dump directory
+     * @throws IOException if directory can't be scanned
+     */
+    private void registerDirectory(WatchService service, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                addFile(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Body of background thread
+     * Waits events of watch service
+     */
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(WATCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    lock.lock();
+                    try {
+                        processKey(key);
+                        processPendingEvents();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignore) {
+        }
+    }
+
+    /**
+     * Handles all events are already queued in watch service
+     * Used for catching up with file system at index misses
+     */
+    private void processPendingEvents() {
+        lock.lock();
+        try {
+            WatchKey key;
+            while ((key = watchService.poll()) != null) {
+                processKey(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates index by events of watch key
+     *
+     * @param key signalled watch key
+     */
+    private void processKey(WatchKey key) {
+        Path directory = directories.get(key);
+        if (directory != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    rescan();
+                } else {
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        addCreatedPath(path);
+                    } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        removeFile(path);
+                    }
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Adds created file or directory to index
+     * Directory which can't be registered is skipped,
+     * its files are not served from index
+     *
+     * @param path created path
+     */
+    private void addCreatedPath(Path path) {
+        if (Files.isDirectory(path)) {
+            try {
+                registerDirectory(watchService, path);
+            } catch (IOException ignore) {
+            }
+        } else {
+            addFile(path);
+        }
+    }
+
+    /**
+     * Rescans whole dump directory after events were lost
+     * Files which can't be scanned now are added by their next events
+     */
+    private void rescan() {
+        try {
+            registerDirectory(watchService, root);
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * Adds class file to index
+     *
+     * @param file path to class file
+     */
+    private void addFile(Path file) {
+        String entryName = toEntryName(file);
+        if (entryName.endsWith(CLASS_FILE_SUFFIX)) {
+            entries.putIfAbsent(entryName, new DumpEntry(file));
+        }
+    }
+
+    /**
+     * Removes deleted class file from index
+     *
+     * @param file path to deleted class file
+     */
+    private void removeFile(Path file) {
+        entries.remove(toEntryName(file));
+    }
+
+    /**
+     * Converts path of file to relative name with '/' separators
+     *
+     * @param file path to file in dump directory
+     * @return name of entry
+     */
+    private String toEntryName(Path file) {
+        Path relativePath = root.relativize(file);
+        StringBuilder entryName = new StringBuilder();
+        for (Path part : relativePath) {
+            if (entryName.length() > 0) {
+                entryName.append('/');
+            }
+            entryName.append(part.toString());
+        }
+
+        return entryName.toString();
+    }
+
+    /**
+     * Entry of index holds path of class file
+     */
+    private static class DumpEntry {
+
+        private final Path file;
+
+        private DumpEntry(Path file) {
+            this.file = file;
+        }
+    }
+}
\ No newline at end of file
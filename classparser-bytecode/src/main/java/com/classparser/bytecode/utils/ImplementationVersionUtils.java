@@ -0,0 +1,78 @@
+package com.classparser.bytecode.utils;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class provides functionality by obtaining version of library
+ * which contains class
+ * Version is taken from manifest of library, if manifest hasn't version,
+ * then name, size and last modified time of jar file are used,
+ * classes of java runtime have version of runtime
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class ImplementationVersionUtils {
+
+    private static final String FILE_PROTOCOL = "file";
+
+    private static final String JAVA_RUNTIME_VERSION = "java.runtime.version";
+
+    private static final String UNKNOWN_VERSION = "unknown";
+
+    private static final Map<Class<?>, String> VERSIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Obtains version of library of class
+     * Version is computed once for each class
+     *
+     * @param clazz any class of library
+     * @return version of library
+     */
+    public static String getImplementationVersion(Class<?> clazz) {
+        return VERSIONS.computeIfAbsent(clazz, ImplementationVersionUtils::readImplementationVersion);
+    }
+
+    /**
+     * Reads version of library from manifest or from attributes of jar file
+     *
+     * @param clazz any class of library
+     * @return version of library
+     */
+    private static String readImplementationVersion(Class<?> clazz) {
+        Package classPackage = clazz.getPackage();
+        String version = classPackage != null ? classPackage.getImplementationVersion() : null;
+        if (version != null) {
+            return version;
+        }
+
+        try {
+            ProtectionDomain protectionDomain = clazz.getProtectionDomain();
+            CodeSource codeSource = protectionDomain != null ? protectionDomain.getCodeSource() : null;
+            URL location = codeSource != null ? codeSource.getLocation() : null;
+            if (location == null) {
+                return System.getProperty(JAVA_RUNTIME_VERSION, UNKNOWN_VERSION);
+            }
+
+            if (FILE_PROTOCOL.equals(location.getProtocol())) {
+                Path path = Paths.get(location.toURI());
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    return path.getFileName() + "@" + attributes.size() + "@" + attributes.lastModifiedTime().toMillis();
+                }
+            }
+
+            return location.toString();
+        } catch (Exception exception) {
+            return UNKNOWN_VERSION;
+        }
+    }
+}
\ No newline at end of file
@@ -1,13 +1,24 @@
 package com.classparser.bytecode.utils;
 
+import com.classparser.bytecode.api.ByteCodeCollector;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Class provides functionality by searching all inner classes for any class
+ * Inner classes are discovered from "NestMembers" and "InnerClasses"
+ * attributes of byte code, so classes are never probed by names
+ * and are never initialized during search
+ * If byte code is not available, then member classes are obtained
+ * by reflection and local classes are searched in constant pool
  *
  * @author Aleksei Makarov
  * @since 1.0.0
@@ -27,77 +38,139 @@ public class InnerClassesCollector {
      * @return collection of all inner classes
      */
     public Collection<Class<?>> getInnerClasses(Class<?> clazz) {
-        Set<Class<?>> classes = new HashSet<>();
+        Set<Class<?>> classes = new HashSet<>(getByteCodesOfClassAndInnerClasses(clazz).keySet());
+        classes.remove(clazz);
+
+        return classes;
+    }
+
+    /**
+     * Collects byte code of class and all its inner/anonymous/local classes
+     * Byte code is collected by layers of nesting, each layer is
+     * collected by one batch request to byte code collector
+     *
+     * @param clazz any class
+     * @return map where key is class and value is byte code, class itself is the first key
+     */
+    public Map<Class<?>, byte[]> getByteCodesOfClassAndInnerClasses(Class<?> clazz) {
+        Map<Class<?>, byte[]> byteCodes = new LinkedHashMap<>();
 
         if (clazz != null && !clazz.isArray() && !clazz.isPrimitive()) {
-            classes.addAll(getAnonymousOrSyntheticClasses(clazz));
-            classes.addAll(getInnerAndNestedClasses(clazz));
-            classes.addAll(getLocalClasses(clazz));
+            ByteCodeCollector byteCodeCollector = configurationManager.getByteCodeCollector();
+            Set<Class<?>> foundClasses = new HashSet<>();
+            foundClasses.add(clazz);
+
+            List<Class<?>> layer = Collections.singletonList(clazz);
+            while (!layer.isEmpty()) {
+                Map<Class<?>, byte[]> layerByteCodes = byteCodeCollector.getByteCodes(layer);
+
+                List<Class<?>> nextLayer = new ArrayList<>();
+                for (Class<?> layerClass : layer) {
+                    byte[] byteCode = layerByteCodes.get(layerClass);
+                    if (byteCode != null) {
+                        byteCodes.put(layerClass, byteCode);
+                        addNewClasses(nextLayer, foundClasses, getNestedClasses(layerClass, byteCode));
+                    } else {
+                        addNewClasses(nextLayer, foundClasses, getDeclaredClasses(layerClass));
+                        addNewClasses(nextLayer, foundClasses, getLocalClasses(layerClass));
+                    }
+                }
+
+                layer = nextLayer;
+            }
         }
 
-        return classes;
+        return byteCodes;
     }
 
     /**
-     * Collects all anonymous and synthetic classes
+     * Adds classes which were not found before to next layer
      *
-     * @param clazz any class
-     * @return set of all anonymous classes
+     * @param nextLayer    classes of next layer
+     * @param foundClasses all already found classes
+     * @param classes      found nested classes
      */
-    private Set<Class<?>> getAnonymousOrSyntheticClasses(Class<?> clazz) {
-        Set<Class<?>> anonymousOrSyntheticClasses = new HashSet<>();
-
-        int classId = 0;
-        while (classId++ < 2 << 15) {
-            try {
-                String className = ClassNameConverter.toJavaClassName(clazz) + '$' + classId;
-                Class<?> foundedClass = Class.forName(className);
-                anonymousOrSyntheticClasses.add(foundedClass);
-                anonymousOrSyntheticClasses.addAll(getInnerClasses(foundedClass));
-            } catch (java.lang.ClassNotFoundException | NoClassDefFoundError exception) {
-                break;
+    private void addNewClasses(List<Class<?>> nextLayer, Set<Class<?>> foundClasses, List<Class<?>> classes) {
+        for (Class<?> clazz : classes) {
+            if (foundClasses.add(clazz)) {
+                nextLayer.add(clazz);
             }
         }
+    }
 
-        return anonymousOrSyntheticClasses;
+    /**
+     * Obtains classes which are nested in class by attributes of its byte code
+     * Classes are loaded without initialization by class loader of class
+     *
+     * @param clazz    any class
+     * @param byteCode byte code of class
+     * @return list of nested classes
+     */
+    private List<Class<?>> getNestedClasses(Class<?> clazz, byte[] byteCode) {
+        List<String> classNames = new ClassFileScanner(byteCode).getNestedClassNames();
+        List<Class<?>> nestedClasses = new ArrayList<>(classNames.size());
+
+        for (String className : classNames) {
+            Class<?> nestedClass = loadClass(className.replace('/', '.'), clazz.getClassLoader());
+            if (nestedClass != null && nestedClass != clazz) {
+                nestedClasses.add(nestedClass);
+            }
+        }
+
+        return nestedClasses;
     }
 
     /**
-     * Collects all inner and nested classes
+     * Obtains member classes by reflection
      *
      * @param clazz any class
-     * @return set of all inner and nested classes
+     * @return list of member classes
      */
-    private Set<Class<?>> getInnerAndNestedClasses(Class<?> clazz) {
-        Set<Class<?>> innerAndNestedClasses = new HashSet<>();
+    private List<Class<?>> getDeclaredClasses(Class<?> clazz) {
+        List<Class<?>> declaredClasses = new ArrayList<>();
 
-        for (Class<?> innerOrNestedClass : clazz.getDeclaredClasses()) {
-            innerAndNestedClasses.add(innerOrNestedClass);
-            innerAndNestedClasses.addAll(getInnerClasses(innerOrNestedClass));
+        try {
+            Collections.addAll(declaredClasses, clazz.getDeclaredClasses());
+        } catch (SecurityException | LinkageError exception) {
+            System.err.println("Inner classes of " + clazz.getName() + " can't be obtained: " + exception);
         }
 
-        return innerAndNestedClasses;
+        return declaredClasses;
     }
 
     /**
-     * Collects all local classes
+     * Obtains local and anonymous classes referenced from constant pool
+     * Uses only if byte code of class is not available
      *
      * @param clazz any class
-     * @return set of all local classes
+     * @return list of local and anonymous classes
      */
-    private Set<Class<?>> getLocalClasses(Class<?> clazz) {
-        Set<Class<?>> localClasses = new HashSet<>();
-
-        ConstantPoolClassIterable classIterable = new ConstantPoolClassIterable(clazz, configurationManager);
-        for (Class<?> constantClass : classIterable) {
-            String constantClassName = ClassNameConverter.toJavaClassName(constantClass);
-            String className = ClassNameConverter.toJavaClassName(clazz);
-            if (constantClass.isLocalClass() && constantClass != clazz && constantClassName.startsWith(className)) {
+    private List<Class<?>> getLocalClasses(Class<?> clazz) {
+        List<Class<?>> localClasses = new ArrayList<>();
+        String innerClassPrefix = clazz.getName() + '$';
+
+        for (Class<?> constantClass : new ConstantPoolClassIterable(clazz, configurationManager)) {
+            if (constantClass.getName().startsWith(innerClassPrefix)
+                    && (constantClass.isLocalClass() || constantClass.isAnonymousClass())) {
                 localClasses.add(constantClass);
-                localClasses.addAll(getInnerClasses(constantClass));
             }
         }
 
         return localClasses;
     }
+
+    /**
+     * Loads class without initialization
+     *
+     * @param className   java class name
+     * @param classLoader class loader of outer class
+     * @return class or null if class can't be loaded
+     */
+    private Class<?> loadClass(String className, ClassLoader classLoader) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (java.lang.ClassNotFoundException | LinkageError exception) {
+            return null;
+        }
+    }
 }
\ No newline at end of file
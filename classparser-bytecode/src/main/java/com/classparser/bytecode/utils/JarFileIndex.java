@@ -0,0 +1,404 @@
+package com.classparser.bytecode.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Index of class files in jar archive
+ * Central directory of archive is read only once and archive
+ * is mapped to memory, so content of entries is read directly
+ * from the mapped file without opening of streams
+ * <p>
+ * Stored entries are copied once from mapped file, deflated entries
+ * are passed to inflater by small chunks through reusable per thread buffer,
+ * so compressed content is never copied to heap entirely
+ * <p>
+ * Actuality of index is checked by attributes of file
+ * not more often than once per second
+ * <p>
+ * ZIP64 archives and archives larger than 2 GB are not supported
+ * <p>
+ * This class is thread safe
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+public class JarFileIndex {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+
+    private static final int ENCRYPTED_FLAG = 1;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+
+    private static final long ACTUALITY_CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int INFLATER_INPUT_SIZE = 8192;
+
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private static final ThreadLocal<byte[]> INFLATER_INPUTS = ThreadLocal.withInitial(() -> new byte[INFLATER_INPUT_SIZE]);
+
+    private final Path path;
+
+    private final long lastModifiedTime;
+
+    private final long size;
+
+    private final ByteBuffer buffer;
+
+    private final Map<String, Entry> entries;
+
+    private final Set<String> versionedEntries;
+
+    private volatile long lastActualityCheckTime;
+
+    private volatile boolean actual;
+
+    /**
+     * Constructor for init instance
+     *
+     * @param path             path to jar file
+     * @param lastModifiedTime last modified time of indexed file
+     * @param size             size of indexed file
+     * @param buffer           mapped content of file
+     */
+    private JarFileIndex(Path path, long lastModifiedTime, long size, ByteBuffer buffer) {
+        this.path = path;
+        this.lastModifiedTime = lastModifiedTime;
+        this.size = size;
+        this.buffer = buffer;
+        this.entries = new HashMap<>();
+        this.versionedEntries = new HashSet<>();
+        this.lastActualityCheckTime = System.nanoTime();
+        this.actual = true;
+    }
+
+    /**
+     * Maps jar file to memory and reads its central directory
+     *
+     * @param path path to jar file
+     * @return index of jar file
+     * @throws IOException if file can't be read or has unsupported format
+     */
+    public static JarFileIndex open(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.size() > Integer.MAX_VALUE) {
+            throw new ZipException("Archive is too large for indexing: " + path);
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, attributes.size());
+        }
+
+        JarFileIndex index = new JarFileIndex(path,
+                attributes.lastModifiedTime().toMillis(),
+                attributes.size(),
+                buffer.order(ByteOrder.LITTLE_ENDIAN));
+        index.readCentralDirectory();
+
+        return index;
+    }
+
+    /**
+     * Checks if indexed file was not changed after indexing
+     * Attributes of file are read only if previous check was
+     * performed earlier than check interval, changed index is never actual again
+     *
+     * @return true if index is actual
+     */
+    public boolean isActual() {
+        if (actual && System.nanoTime() - lastActualityCheckTime > ACTUALITY_CHECK_INTERVAL) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                actual = attributes.lastModifiedTime().toMillis() == lastModifiedTime && attributes.size() == size;
+            } catch (IOException exception) {
+                actual = false;
+            }
+
+            lastActualityCheckTime = System.nanoTime();
+        }
+
+        return actual;
+    }
+
+    /**
+     * Checks if archive contains entry
+     *
+     * @param entryName name of entry in archive
+     * @return true if entry is exists
+     */
+    public boolean contains(String entryName) {
+        return entries.containsKey(entryName);
+    }
+
+    /**
+     * Checks if archive contains version specific entry of multi release jar
+     * for entry with this name
+     *
+     * @param entryName name of entry in archive
+     * @return true if versioned entry is exists
+     */
+    public boolean hasVersionedEntry(String entryName) {
+        return versionedEntries.contains(entryName);
+    }
+
+    /**
+     * Reads content of entry
+     * Content of stored entry is copied once, content
+     * of deflated entry is inflated to result array
+     *
+     * @param entryName name of entry in archive
+     * @return content of entry or null if entry is absent
+     * @throws IOException if entry is corrupted
+     */
+    public byte[] getBytes(String entryName) throws IOException {
+        Entry entry = entries.get(entryName);
+        if (entry == null) {
+            return null;
+        }
+
+        byte[] content = new byte[entry.uncompressedSize];
+        if (entry.method == STORED) {
+            getEntryData(entry, entry.uncompressedSize).get(content);
+        } else {
+            inflate(entryName, getEntryData(entry, entry.compressedSize), content);
+        }
+
+        return content;
+    }
+
+    /**
+     * Obtains count of indexed class files
+     *
+     * @return count of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Reads central directory and stores location of each class file
+     *
+     * @throws IOException if archive has unsupported format
+     */
+    private void readCentralDirectory() throws IOException {
+        int endOfCentralDirectory = findEndOfCentralDirectory();
+        int entriesCount = buffer.getShort(endOfCentralDirectory + 10) & 0xFFFF;
+        long centralDirectoryOffset = buffer.getInt(endOfCentralDirectory + 16) & 0xFFFFFFFFL;
+        if (entriesCount == ZIP64_MAGIC_COUNT || centralDirectoryOffset == ZIP64_MAGIC_VALUE) {
+            throw new ZipException("ZIP64 archives is not supported: " + path);
+        }
+
+        int position = (int) centralDirectoryOffset;
+        for (int index = 0; index < entriesCount; index++) {
+            if (position + CENTRAL_DIRECTORY_HEADER_SIZE > buffer.limit()
+                    || buffer.getInt(position) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                throw new ZipException("Central directory is corrupted: " + path);
+            }
+
+            int flags = buffer.getShort(position + 8) & 0xFFFF;
+            int method = buffer.getShort(position + 10) & 0xFFFF;
+            long compressedSize = buffer.getInt(position + 20) & 0xFFFFFFFFL;
+            long uncompressedSize = buffer.getInt(position + 24) & 0xFFFFFFFFL;
+            int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = buffer.getInt(position + 42) & 0xFFFFFFFFL;
+
+            String name = readName(position + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+            if (name.endsWith(CLASS_FILE_SUFFIX)
+                    && (flags & ENCRYPTED_FLAG) == 0
+                    && (method == STORED || method == DEFLATED)
+                    && uncompressedSize < Integer.MAX_VALUE
+                    && compressedSize < Integer.MAX_VALUE
+                    && localHeaderOffset < buffer.limit()) {
+                entries.put(name, new Entry(method, (int) localHeaderOffset, (int) compressedSize, (int) uncompressedSize));
+                registerVersionedEntry(name);
+            }
+
+            position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    /**
+     * Stores base name of version specific entry
+     * For example "META-INF/versions/9/a/B.class" is stored as "a/B.class"
+     *
+     * @param name name of entry in archive
+     */
+    private void registerVersionedEntry(String name) {
+        if (name.startsWith(VERSIONS_DIRECTORY)) {
+            int separator = name.indexOf('/', VERSIONS_DIRECTORY.length());
+            if (separator != -1) {
+                versionedEntries.add(name.substring(separator + 1));
+            }
+        }
+    }
+
+    /**
+     * Searches record "end of central directory" from the end of archive
+     *
+     * @return position of record in archive
+     * @throws IOException if record is not found
+     */
+    private int findEndOfCentralDirectory() throws IOException {
+        int lastPosition = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int firstPosition = Math.max(0, lastPosition - MAX_COMMENT_SIZE);
+        for (int position = lastPosition; position >= firstPosition; position--) {
+            if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+
+        throw new ZipException("End of central directory is not found: " + path);
+    }
+
+    /**
+     * Reads name of entry from central directory
+     *
+     * @param position   position of name in archive
+     * @param nameLength length of name in bytes
+     * @return name of entry
+     */
+    private String readName(int position, int nameLength) {
+        byte[] name = new byte[nameLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(name);
+
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Obtains view of entry data located after local file header
+     *
+     * @param entry  indexed entry
+     * @param length length of data
+     * @return buffer with entry data
+     * @throws IOException if local file header is corrupted
+     */
+    private ByteBuffer getEntryData(Entry entry, int length) throws IOException {
+        int localHeader = entry.localHeaderOffset;
+        if (localHeader + LOCAL_FILE_HEADER_SIZE > buffer.limit()
+                || buffer.getInt(localHeader) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("Local file header is corrupted: " + path);
+        }
+
+        int nameLength = buffer.getShort(localHeader + 26) & 0xFFFF;
+        int extraLength = buffer.getShort(localHeader + 28) & 0xFFFF;
+        int dataOffset = localHeader + LOCAL_FILE_HEADER_SIZE + nameLength + extraLength;
+        if (dataOffset + length > buffer.limit()) {
+            throw new ZipException("Entry data is out of archive: " + path);
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(dataOffset);
+        view.limit(dataOffset + length);
+
+        return view.slice();
+    }
+
+    /**
+     * Inflates deflated content of entry
+     * Compressed content is passed to inflater by chunks
+     * of reusable buffer, because inflater of java 8 accepts only arrays
+     *
+     * @param entryName         name of entry in archive
+     * @param compressedContent view of deflated content in mapped file
+     * @param content           array for inflated content
+     * @throws IOException if content is corrupted
+     */
+    private void inflate(String entryName, ByteBuffer compressedContent, byte[] content) throws IOException {
+        Inflater inflater = INFLATERS.get();
+        byte[] input = INFLATER_INPUTS.get();
+        try {
+            int offset = 0;
+            while (offset < content.length && !inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (!compressedContent.hasRemaining()) {
+                        break;
+                    }
+
+                    int length = Math.min(input.length, compressedContent.remaining());
+                    compressedContent.get(input, 0, length);
+                    inflater.setInput(input, 0, length);
+                }
+
+                int count = inflater.inflate(content, offset, content.length - offset);
+                if (count == 0 && inflater.needsDictionary()) {
+                    break;
+                }
+                offset += count;
+            }
+
+            if (offset != content.length) {
+                throw new ZipException("Entry " + entryName + " is truncated in " + path);
+            }
+        } catch (DataFormatException exception) {
+            throw new ZipException("Entry " + entryName + " is corrupted in " + path + ": " + exception.getMessage());
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    /**
+     * Location of class file in archive
+     */
+    private static class Entry {
+
+        private final int method;
+
+        private final int localHeaderOffset;
+
+        private final int compressedSize;
+
+        private final int uncompressedSize;
+
+        private Entry(int method, int localHeaderOffset, int compressedSize, int uncompressedSize) {
+            this.method = method;
+            this.localHeaderOffset = localHeaderOffset;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.classparser.bytecode.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader uses internal constant pool of JVM which is obtained
+ * from HotSpot or J9 reflection API
+ * JVM is detected and all methods are resolved to {@link MethodHandle}
+ * only once, if it is impossible then reader is not supported
+ * <p>
+ * On java 9 and above this reader requires options
+ * <code>--add-opens java.base/java.lang=ALL-UNNAMED</code>
+ * <code>--add-exports java.base/jdk.internal.reflect=ALL-UNNAMED</code>
+ * <p>
+ * Package private access
+ *
+ * @author Aleksei Makarov
+ * @since 1.0.0
+ */
+final class ReflectionConstantPoolReader implements ConstantPoolReader {
+
+    private static final String[] CONSTANT_POOL_CLASS_NAMES = {
+            "jdk.internal.reflect.ConstantPool",
+            "sun.reflect.ConstantPool"
+    };
+
+    private static final String CLASS_TAG = "CLASS";
+
+    private static final ConstantPoolHandles HANDLES = ConstantPoolHandles.resolve();
+
+    @Override
+    public boolean isSupported() {
+        return HANDLES != null;
+    }
+
+    @Override
+    public List<Class<?>> getClasses(Class<?> clazz) {
+        List<Class<?>> classes = new ArrayList<>();
+
+        if (HANDLES != null && !clazz.isArray() && !clazz.isPrimitive()) {
+            try {
+                Object constantPool = HANDLES.getConstantPool.invoke(clazz);
+                int size = (int) HANDLES.getSize.invoke(constantPool);
+                for (int index = 1; index < size; index++) {
+                    if (HANDLES.getTagAt == null || isClassTag(HANDLES.getTagAt.invoke(constantPool, index))) {
+                        addClassAt(classes, constantPool, index);
+                    }
+                }
+            } catch (RuntimeException | Error exception) {
+                throw exception;
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Can't read constant pool of class " + clazz, throwable);
+            }
+        }
+
+        return classes;
+    }
+
+    /**
+     * Checks if tag of constant pool entry is class tag
+     *
+     * @param tag tag enum value
+     * @return true if entry is class constant
+     */
+    private boolean isClassTag(Object tag) {
+        return tag != null && CLASS_TAG.equals(tag.toString());
+    }
+
+    /**
+     * Resolves class constant and adds it to list
+     * Constants without tags on java 8 and class constants which can't
+     * be loaded are rejected by JVM with exceptions, such entries are skipped
+     *
+     * @param classes      list of classes
+     * @param constantPool constant pool instance
+     * @param index        index of constant
+     * @throws Throwable if method handle invocation failed
+     */
+    private void addClassAt(List<Class<?>> classes, Object constantPool, int index) throws Throwable {
+        try {
+            classes.add((Class<?>) HANDLES.getClassAt.invoke(constantPool, index));
+        } catch (IllegalArgumentException | IllegalAccessError | NoClassDefFoundError ignore) {
+        }
+    }
+
+    /**
+     * Method handles for access to constant pool are resolved for current JVM
+     */
+    private static class ConstantPoolHandles {
+
+        private final MethodHandle getConstantPool;
+
+        private final MethodHandle getSize;
+
+        private final MethodHandle getClassAt;
+
+        private final MethodHandle getTagAt;
+
+        private ConstantPoolHandles(MethodHandle getConstantPool,
+                                    MethodHandle getSize,
+                                    MethodHandle getClassAt,
+                                    MethodHandle getTagAt) {
+            this.getConstantPool = getConstantPool;
+            this.getSize = getSize;
+            this.getClassAt = getClassAt;
+            this.getTagAt = getTagAt;
+        }
+
+        /**
+         * Detects JVM and resolves method handles
+         *
+         * @return resolved handles or null if constant pool is not accessible
+         */
+        private static ConstantPoolHandles resolve() {
+            try {
+                Class<?> constantPoolClass = getConstantPoolClass();
+                if (constantPoolClass == null) {
+                    return null;
+                }
+
+                MethodHandle getConstantPool = resolveGetConstantPool(constantPoolClass);
+                if (getConstantPool == null) {
+                    return null;
+                }
+
+                MethodHandle getSize = unreflect(constantPoolClass.getDeclaredMethod("getSize"));
+                MethodHandle getClassAt = unreflect(constantPoolClass.getDeclaredMethod("getClassAt", int.class));
+                MethodHandle getTagAt = resolveGetTagAt(constantPoolClass);
+
+                return new ConstantPoolHandles(
+                        getConstantPool.asType(MethodType.methodType(Object.class, Class.class)),
+                        getSize.asType(MethodType.methodType(int.class, Object.class)),
+                        getClassAt.asType(MethodType.methodType(Class.class, Object.class, int.class)),
+                        getTagAt != null ? getTagAt.asType(MethodType.methodType(Object.class, Object.class, int.class)) : null);
+            } catch (ReflectiveOperationException | RuntimeException exception) {
+                return null;
+            }
+        }
+
+        /**
+         * Obtains class of internal constant pool
+         *
+         * @return constant pool class or null if class is absent
+         */
+        private static Class<?> getConstantPoolClass() {
+            for (String className : CONSTANT_POOL_CLASS_NAMES) {
+                try {
+                    return Class.forName(className);
+                } catch (ClassNotFoundException ignore) {
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Resolves method obtains constant pool of class for current JVM
+         * HotSpot uses {@code Class.getConstantPool()}, J9 uses {@code java.lang.Access}
+         *
+         * @param constantPoolClass class of internal constant pool
+         * @return method handle or null if JVM is not supported
+         * @throws ReflectiveOperationException if method can't be resolved
+         */
+        private static MethodHandle resolveGetConstantPool(Class<?> constantPoolClass) throws ReflectiveOperationException {
+            String vmName = System.getProperty("java.vm.name", "").toLowerCase();
+            if (vmName.contains("hotspot") || vmName.contains("openjdk")) {
+                return unreflect(Class.class.getDeclaredMethod("getConstantPool"));
+            } else if (vmName.contains("j9")) {
+                Class<?> access = Class.forName("java.lang.Access");
+                return unreflect(access.getDeclaredMethod("getConstantPool", Object.class))
+                        .asType(MethodType.methodType(constantPoolClass, Class.class));
+            }
+
+            return null;
+        }
+
+        /**
+         * Resolves method obtains tag of constant pool entry
+         * This method is available only on java 9 and above
+         *
+         * @param constantPoolClass class of internal constant pool
+         * @return method handle or null if method is absent
+         */
+        private static MethodHandle resolveGetTagAt(Class<?> constantPoolClass) {
+            try {
+                return unreflect(constantPoolClass.getDeclaredMethod("getTagAt", int.class));
+            } catch (ReflectiveOperationException | RuntimeException exception) {
+                return null;
+            }
+        }
+
+        /**
+         * Converts accessible method to method handle
+         *
+         * @param method any method
+         * @return method handle
+         * @throws IllegalAccessException if method is not accessible
+         */
+        private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        }
+    }
+}
\ No newline at end of file
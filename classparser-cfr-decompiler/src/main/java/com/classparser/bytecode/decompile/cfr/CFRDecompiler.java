@@ -2,11 +2,14 @@ package com.classparser.bytecode.decompile.cfr;
 
 import com.classparser.bytecode.api.ByteCodeCollector;
 import com.classparser.bytecode.api.Decompiler;
-import com.classparser.bytecode.collector.ChainByteCodeCollector;
+import com.classparser.bytecode.cache.LruCache;
+import com.classparser.bytecode.cache.SourceKey;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.decompile.cfr.configuration.CFRBuilderConfiguration;
 import com.classparser.bytecode.exception.decompile.DecompilationException;
 import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.Deadline;
+import com.classparser.bytecode.utils.ImplementationVersionUtils;
 import com.classparser.util.ConfigurationUtils;
 import org.benf.cfr.reader.api.ClassFileSource;
 import org.benf.cfr.reader.apiunreleased.ClassFileSource2;
@@ -24,6 +27,7 @@ import org.benf.cfr.reader.util.getopt.OptionsImpl;
 import org.benf.cfr.reader.util.output.Dumper;
 import org.benf.cfr.reader.util.output.ToStringDumper;
 
+import java.io.IOException;
 import java.util.*;
 
 import static com.classparser.bytecode.decompile.cfr.configuration.CFRConfiguration.INT_OPTIONS;
@@ -39,29 +43,84 @@ import static com.classparser.bytecode.decompile.cfr.configuration.CFRConfigurat
  */
 public final class CFRDecompiler implements Decompiler {
 
+    private static final int REFERENCE_CLASS_FILE_CACHE_SIZE = 1024;
+
+    private static final int MAX_SESSION_DECOMPILATIONS = 1000;
+
     private final ConfigurationUtils utils;
 
-    private volatile ConfigurationManager configurationManager;
+    private final ThreadLocal<CFRSession> sessions;
+
+    private final LruCache<ClassFileKey, ClassFile> referencedClasses;
+
+    private volatile CFROptions options;
 
     public CFRDecompiler() {
         this.utils = new ConfigurationUtils(getDefaultConfiguration());
+        this.sessions = new ThreadLocal<>();
+        this.referencedClasses = new LruCache<>(REFERENCE_CLASS_FILE_CACHE_SIZE, Long.MAX_VALUE, classFile -> 0);
     }
 
     @Override
     public String decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes) {
-        if (byteCode != null && nestedClassesByteCodes != null) {
-            String className = ClassNameConverter.getClassName(byteCode);
+        return dumpClass(byteCode, nestedClassesByteCodes).toString().trim();
+    }
+
+    /**
+     * Decompiles byte code and writes decompiled code to output
+     * CFR can dump class only to own string dumper, so dumped code
+     * is passed to output without copying of trimmed string
+     *
+     * @param byteCode               byte code of class
+     * @param nestedClassesByteCodes byte code of inner classes
+     * @param output                 output for decompiled code
+     */
+    @Override
+    public void decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes, Appendable output) {
+        String decompiledCode = dumpClass(byteCode, nestedClassesByteCodes).toString();
+
+        int start = 0;
+        int end = decompiledCode.length();
+        while (start < end && decompiledCode.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && decompiledCode.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        try {
+            output.append(decompiledCode, start, end);
+        } catch (IOException exception) {
+            throw new DecompilationException("Decompiled code can't be written to output", exception);
+        }
+    }
 
-            GetOptParser getOptParser = new GetOptParser();
-            String[] defaultOptions = getDefaultOptions(className);
-            Pair<List<String>, Options> parse = getOptParser.parse(defaultOptions, OptionsImpl.getFactory());
+    /**
+     * Analyses byte code and dumps class
+     * Class files of decompiled classes are created for each call,
+     * class files of referenced classes are reused from session
+     * Session is dropped if analysis was failed, because state
+     * of it can be inconsistent
+     * CFR replaces methods which failed to load referenced classes by comments,
+     * so {@link Deadline} is checked after dump and incomplete code is never returned
+     *
+     * @param byteCode               byte code of class
+     * @param nestedClassesByteCodes byte code of inner classes
+     * @return dumper contains decompiled code
+     */
+    private Dumper dumpClass(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes) {
+        if (byteCode == null || nestedClassesByteCodes == null) {
+            throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        }
 
-            Options options = parse.getSecond();
-            ClassFileSource2 classFileSource = new ClassFileSourceImpl(options);
-            DCCommonState dcCommonState = new CFRDCCommonState(options, classFileSource, byteCode, nestedClassesByteCodes);
+        String className = ClassNameConverter.getClassName(byteCode);
 
+        CFRSession session = getSession();
+        CFRDCCommonState dcCommonState = session.dcCommonState;
+        try {
+            dcCommonState.setDecompiledClasses(byteCode, nestedClassesByteCodes);
             ClassFile classFile = dcCommonState.getClassFileMaybePath(className);
-            TypeUsageCollectingDumper typeUsageCollectingDumper = new TypeUsageCollectingDumper(options, classFile);
+            TypeUsageCollectingDumper typeUsageCollectingDumper = new TypeUsageCollectingDumper(session.options.options, classFile);
             dcCommonState.configureWith(classFile);
 
             classFile.loadInnerClasses(dcCommonState);
@@ -69,23 +128,79 @@ public final class CFRDecompiler implements Decompiler {
 
             Dumper dumper = new ToStringDumper();
             classFile.dump(dumper);
+            Deadline.checkCurrent();
+
+            return dumper;
+        } catch (RuntimeException exception) {
+            sessions.remove();
+            throw exception;
+        } finally {
+            dcCommonState.clearDecompiledClasses();
+        }
+    }
 
-            return dumper.toString().trim();
+    /**
+     * Obtains decompilation session of current thread
+     * Session is recreated if options of decompiler were changed
+     * or if session was used for too many decompilations, because
+     * CFR interns all met types in session state
+     *
+     * @return decompilation session
+     */
+    private CFRSession getSession() {
+        CFROptions currentOptions = getOptions();
+
+        CFRSession session = sessions.get();
+        if (session == null || session.options != currentOptions || session.decompilations >= MAX_SESSION_DECOMPILATIONS) {
+            session = new CFRSession(currentOptions, referencedClasses);
+            sessions.set(session);
         }
 
-        throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        session.decompilations++;
+        return session;
+    }
+
+    /**
+     * Obtains current options of decompiler
+     * If configuration manager isn't set, then default
+     * configuration manager is created and set once
+     *
+     * @return decompiler options
+     */
+    private CFROptions getOptions() {
+        CFROptions currentOptions = options;
+        if (currentOptions == null) {
+            synchronized (utils) {
+                if (options == null) {
+                    setConfigurationManager(new ConfigurationManager());
+                }
+
+                currentOptions = options;
+            }
+        }
+
+        return currentOptions;
     }
 
     /**
      * Parses a current configuration and create decompiler options
      *
-     * @param className decompiled class name
-     * @return array of decompiler options
+     * @return decompiler options
      */
-    private String[] getDefaultOptions(String className) {
-        List<String> options = new ArrayList<>();
+    private Options parseOptions() {
+        GetOptParser getOptParser = new GetOptParser();
+        Pair<List<String>, Options> parse = getOptParser.parse(getDefaultOptions(), OptionsImpl.getFactory());
 
-        options.add(className);
+        return parse.getSecond();
+    }
+
+    /**
+     * Creates arguments of decompiler by current configuration
+     *
+     * @return array of decompiler arguments
+     */
+    private String[] getDefaultOptions() {
+        List<String> options = new ArrayList<>();
 
         Set<String> optionKeys = getDefaultConfiguration().keySet();
         for (String key : optionKeys) {
@@ -191,40 +306,166 @@ public final class CFRDecompiler implements Decompiler {
                 .getConfiguration();
     }
 
+    /**
+     * Obtains version of CFR library
+     *
+     * @return version of decompiler
+     */
+    @Override
+    public String getVersion() {
+        return ImplementationVersionUtils.getImplementationVersion(OptionsImpl.class);
+    }
+
+    /**
+     * Sets configuration manager into decompiler
+     * Options are parsed only if configuration manager is changed
+     * or configuration of it was reloaded
+     *
+     * @param configurationManager current configuration manager
+     */
     @Override
     public void setConfigurationManager(ConfigurationManager configurationManager) {
-        this.configurationManager = configurationManager;
-        this.utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+        if (configurationManager != null) {
+            long epoch = configurationManager.getConfigurationEpoch();
+
+            synchronized (utils) {
+                CFROptions currentOptions = options;
+                if (currentOptions == null
+                        || currentOptions.configurationManager != configurationManager
+                        || currentOptions.epoch != epoch) {
+                    utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+                    options = new CFROptions(configurationManager, epoch, parseOptions());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parsed options of decompiler for configuration epoch
+     */
+    private static class CFROptions {
+
+        private final ConfigurationManager configurationManager;
+
+        private final long epoch;
+
+        private final Options options;
+
+        private CFROptions(ConfigurationManager configurationManager, long epoch, Options options) {
+            this.configurationManager = configurationManager;
+            this.epoch = epoch;
+            this.options = options;
+        }
+    }
+
+    /**
+     * Decompilation session of one thread
+     * Class files of CFR are bound to state which has created them,
+     * so referenced class files are shared only by decompilations of one state
+     */
+    private static class CFRSession {
+
+        private final CFROptions options;
+
+        private final CFRDCCommonState dcCommonState;
+
+        private int decompilations;
+
+        private CFRSession(CFROptions options, LruCache<ClassFileKey, ClassFile> referencedClasses) {
+            this.options = options;
+            this.dcCommonState = new CFRDCCommonState(options.options,
+                    new ClassFileSourceImpl(options.options),
+                    options.configurationManager.getByteCodeCollector(),
+                    referencedClasses);
+        }
+    }
+
+    /**
+     * Key of referenced class file in cache shared by all sessions
+     * Class file is identified by state which has created it, class name
+     * and 64-bit hash of its byte code, so changed classes are not resolved
+     * to stale class files and sessions never obtain class files of other states
+     */
+    private static class ClassFileKey {
+
+        private final DCCommonState state;
+
+        private final String className;
+
+        private final int length;
+
+        private final long hash;
+
+        private ClassFileKey(DCCommonState state, String className, byte[] byteCode) {
+            this.state = state;
+            this.className = className;
+            this.length = byteCode.length;
+            this.hash = SourceKey.hash(byteCode);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+
+            if (object == null || getClass() != object.getClass()) {
+                return false;
+            }
+
+            ClassFileKey that = (ClassFileKey) object;
+            return state == that.state
+                    && length == that.length
+                    && hash == that.hash
+                    && className.equals(that.className);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(state) + className.hashCode()) + Long.hashCode(hash);
+        }
     }
 
     /**
      * Class extends {@link DCCommonState} and overrides same methods by loading {@link ClassFile} instances
      * by class full name
      */
-    private class CFRDCCommonState extends DCCommonState {
-
-        private final String outerClassName;
+    private static class CFRDCCommonState extends DCCommonState {
 
         private final ByteCodeCollector codeCollector;
 
-        private final Map<String, ClassFile> classFileCache;
+        private final Map<String, ClassFile> decompiledClasses;
+
+        private final LruCache<ClassFileKey, ClassFile> referencedClasses;
+
+        private String outerClassName;
 
         /**
          * Default constructor for initialize {@link CFRDCCommonState} instance
          *
-         * @param options         decompiler options
-         * @param classFileSource {@link ClassFileSource} instance of based decompile class
-         * @param byteCode        byte code of based decompile class
-         * @param innerClasses    collection of all inner classes
+         * @param options           decompiler options
+         * @param classFileSource   {@link ClassFileSource} instance of decompiler
+         * @param codeCollector     collector of byte code of referenced classes
+         * @param referencedClasses cache of referenced class files shared by all sessions
          */
         private CFRDCCommonState(Options options,
                                  ClassFileSource2 classFileSource,
-                                 byte[] byteCode,
-                                 Collection<byte[]> innerClasses) {
+                                 ByteCodeCollector codeCollector,
+                                 LruCache<ClassFileKey, ClassFile> referencedClasses) {
             super(options, classFileSource);
+            this.codeCollector = codeCollector;
+            this.decompiledClasses = new HashMap<>();
+            this.referencedClasses = referencedClasses;
+        }
+
+        /**
+         * Sets classes for current decompilation
+         *
+         * @param byteCode     byte code of based decompile class
+         * @param innerClasses collection of all inner classes
+         */
+        private void setDecompiledClasses(byte[] byteCode, Collection<byte[]> innerClasses) {
             this.outerClassName = ClassNameConverter.toJavaClassName(byteCode);
-            this.codeCollector = new ChainByteCodeCollector(configurationManager);
-            this.classFileCache = new HashMap<>();
 
             convertClassFileFromByteCode(byteCode);
             for (byte[] innerClass : innerClasses) {
@@ -232,6 +473,14 @@ public final class CFRDecompiler implements Decompiler {
             }
         }
 
+        /**
+         * Removes classes of finished decompilation
+         */
+        private void clearDecompiledClasses() {
+            this.decompiledClasses.clear();
+            this.outerClassName = null;
+        }
+
         @Override
         public ClassFile getClassFile(String path) throws CannotLoadClassException {
             return loadClassFileAtPath(path);
@@ -239,15 +488,17 @@ public final class CFRDecompiler implements Decompiler {
 
         /**
          * Performs obtain {@link ClassFile} instance by class name
+         * {@link Deadline} of current thread is checked before loading
          *
          * @param className class name
          * @return {@link ClassFile} instance
          * @throws CannotLoadClassException if can't obtain {@link ClassFile} instance by name
          */
         public ClassFile loadClassFileAtPath(String className) throws CannotLoadClassException {
+            Deadline.checkCurrent();
             className = ClassNameConverter.toJavaClassName(className);
 
-            ClassFile classFile = classFileCache.get(className);
+            ClassFile classFile = decompiledClasses.get(className);
             if (classFile != null) {
                 return classFile;
             }
@@ -256,7 +507,16 @@ public final class CFRDecompiler implements Decompiler {
                 throw new CannotLoadClassException("", null);
             }
 
-            return convertClassFileFromByteCode(getByteCode(className));
+            byte[] byteCode = getByteCode(className);
+            ClassFileKey key = new ClassFileKey(this, className, byteCode);
+
+            classFile = referencedClasses.get(key);
+            if (classFile == null) {
+                classFile = new ClassFile(new BaseByteData(byteCode), className, this);
+                referencedClasses.put(key, classFile);
+            }
+
+            return classFile;
         }
 
         /**
@@ -299,19 +559,15 @@ public final class CFRDecompiler implements Decompiler {
 
         /**
          * Performs converting byte code of class to {@link ClassFile} instance
-         * and put this entity to {@link #classFileCache}
+         * and put this entity to {@link #decompiledClasses}
          *
          * @param byteCode byte code of class
-         * @return {@link ClassFile} instance
          */
-        private ClassFile convertClassFileFromByteCode(byte[] byteCode) {
+        private void convertClassFileFromByteCode(byte[] byteCode) {
             String className = ClassNameConverter.toJavaClassName(byteCode);
 
             ByteData data = new BaseByteData(byteCode);
-            ClassFile classFile = new ClassFile(data, className, this);
-            classFileCache.put(className, classFile);
-
-            return classFile;
+            decompiledClasses.put(className, new ClassFile(data, className, this));
         }
     }
 }
\ No newline at end of file
@@ -2,6 +2,12 @@ package com.classparser.api;
 
 import com.classparser.configuration.Configuration;
 import com.classparser.exception.ParsingException;
+import com.classparser.util.BulkParsingUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Interface provides functional by parsing of classes
@@ -24,6 +30,47 @@ public interface ClassParser {
      */
     String parseClass(Class<?> clazz) throws ParsingException;
 
+    /**
+     * Get meta information of class and write it to output
+     * Default implementation appends result of {@link #parseClass(Class)}
+     *
+     * @param clazz  class for which getting meta-info
+     * @param output output for parsed meta information, for example {@link java.io.Writer}
+     * @throws ParsingException if parsing process was interrupted with errors
+     *                          or parsed meta information can't be written
+     */
+    default void parseClass(Class<?> clazz, Appendable output) throws ParsingException {
+        String parsedClass = parseClass(clazz);
+        try {
+            output.append(parsedClass);
+        } catch (IOException exception) {
+            throw new ParsingException("Parsed class can't be written to output", exception);
+        }
+    }
+
+    /**
+     * Get meta information of class asynchronously
+     * Default implementation parses class in {@link ForkJoinPool#commonPool()}
+     *
+     * @param clazz class for which getting meta-info
+     * @return future of parsed meta information of class
+     */
+    default CompletableFuture<String> parseClassAsync(Class<?> clazz) {
+        return CompletableFuture.supplyAsync(() -> parseClass(clazz));
+    }
+
+    /**
+     * Get meta information of several classes
+     * Error of any class does not abort parsing of other classes
+     * Default implementation parses classes one by one in current thread
+     *
+     * @param classes classes for which getting meta-info
+     * @return result contains decompiled code of classes and errors of parsing
+     */
+    default ParsingResult parseClasses(Collection<Class<?>> classes) {
+        return BulkParsingUtils.parseClasses(this, classes, null, clazz -> null);
+    }
+
     /**
      * Set configuration object
      *
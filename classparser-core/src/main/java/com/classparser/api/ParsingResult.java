@@ -0,0 +1,72 @@
+package com.classparser.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of parsing of several classes
+ * Contains parsed code of classes and errors of classes which were not parsed
+ *
+ * @author Aleksei Makarov
+ */
+public class ParsingResult {
+
+    /**
+     * Parsed code of classes
+     */
+    private final Map<Class<?>, String> sources;
+
+    /**
+     * Errors of classes which were not parsed
+     */
+    private final Map<Class<?>, Throwable> failures;
+
+    /**
+     * Default constructor for initialize {@link ParsingResult}
+     *
+     * @param sources  parsed code of classes
+     * @param failures errors of classes which were not parsed
+     */
+    public ParsingResult(Map<Class<?>, String> sources, Map<Class<?>, Throwable> failures) {
+        this.sources = Collections.unmodifiableMap(new LinkedHashMap<>(sources));
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    /**
+     * Obtain parsed code of all successfully parsed classes
+     *
+     * @return map where key is class and value is parsed code
+     */
+    public Map<Class<?>, String> getSources() {
+        return sources;
+    }
+
+    /**
+     * Obtain parsed code of class
+     *
+     * @param clazz any class
+     * @return parsed code or null if class was not parsed
+     */
+    public String getSource(Class<?> clazz) {
+        return sources.get(clazz);
+    }
+
+    /**
+     * Obtain errors of classes which were not parsed
+     *
+     * @return map where key is class and value is error
+     */
+    public Map<Class<?>, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Check has any class was not parsed
+     *
+     * @return true if errors exist
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
\ No newline at end of file
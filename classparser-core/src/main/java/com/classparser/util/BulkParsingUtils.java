@@ -0,0 +1,174 @@
+package com.classparser.util;
+
+import com.classparser.api.ClassParser;
+import com.classparser.api.ParsingResult;
+import com.classparser.exception.ParsingException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Class provides methods for parsing of several classes by one call
+ * Nested classes are grouped with their outer classes, so class
+ * which code is already a part of code of its outer class is never parsed twice
+ *
+ * @author Aleksei Makarov
+ */
+public class BulkParsingUtils {
+
+    /**
+     * Parse classes uses executor
+     * Error of any class is collected to result and does not abort parsing of other classes
+     *
+     * @param parser                 parser of classes
+     * @param classes                classes for parsing
+     * @param executor               executor for parsing tasks or null for parsing in current thread
+     * @param enclosingClassResolver function obtains class which parsed code contains
+     *                               code of given class or null if such class is absent
+     * @return result of parsing
+     */
+    public static ParsingResult parseClasses(ClassParser parser,
+                                             Collection<Class<?>> classes,
+                                             Executor executor,
+                                             Function<Class<?>, Class<?>> enclosingClassResolver) {
+        return parseClasses(classes, executor, enclosingClassResolver, 1, batch -> parseOneByOne(parser, batch));
+    }
+
+    /**
+     * Parse classes by batches uses executor
+     * Classes are split to batches with given size and each batch is parsed by one task
+     * If parser of batch was interrupted with error, then all classes of batch are failed
+     *
+     * @param classes                classes for parsing
+     * @param executor               executor for parsing tasks or null for parsing in current thread
+     * @param enclosingClassResolver function obtains class which parsed code contains
+     *                               code of given class or null if such class is absent
+     * @param batchSize              max count of classes in one batch
+     * @param batchParser            function parses batch of classes
+     * @return result of parsing
+     */
+    public static ParsingResult parseClasses(Collection<Class<?>> classes,
+                                             Executor executor,
+                                             Function<Class<?>, Class<?>> enclosingClassResolver,
+                                             int batchSize,
+                                             Function<List<Class<?>>, ParsingResult> batchParser) {
+        Map<Class<?>, Class<?>> outerClasses = getOuterClasses(classes, enclosingClassResolver);
+        List<Class<?>> parsedClasses = new ArrayList<>(new LinkedHashSet<>(outerClasses.values()));
+
+        Map<Class<?>, CompletableFuture<ParsingResult>> tasks = new HashMap<>();
+        int size = Math.max(1, batchSize);
+        for (int from = 0; from < parsedClasses.size(); from += size) {
+            List<Class<?>> batch = parsedClasses.subList(from, Math.min(from + size, parsedClasses.size()));
+            CompletableFuture<ParsingResult> task = submit(batchParser, new ArrayList<>(batch), executor);
+            for (Class<?> clazz : batch) {
+                tasks.put(clazz, task);
+            }
+        }
+
+        Map<Class<?>, String> sources = new LinkedHashMap<>();
+        Map<Class<?>, Throwable> failures = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, Class<?>> entry : outerClasses.entrySet()) {
+            Class<?> parsedClass = entry.getValue();
+            try {
+                ParsingResult result = tasks.get(parsedClass).join();
+                if (result.getFailures().containsKey(parsedClass)) {
+                    failures.put(entry.getKey(), result.getFailures().get(parsedClass));
+                } else if (result.getSources().containsKey(parsedClass)) {
+                    sources.put(entry.getKey(), result.getSource(parsedClass));
+                } else {
+                    failures.put(entry.getKey(), new ParsingException("Class " + parsedClass.getName() + " was not parsed"));
+                }
+            } catch (CompletionException exception) {
+                Throwable cause = exception.getCause() != null ? exception.getCause() : exception;
+                failures.put(entry.getKey(), cause);
+            }
+        }
+
+        return new ParsingResult(sources, failures);
+    }
+
+    /**
+     * Parse classes one by one
+     *
+     * @param parser  parser of classes
+     * @param classes classes for parsing
+     * @return result of parsing
+     */
+    private static ParsingResult parseOneByOne(ClassParser parser, List<Class<?>> classes) {
+        Map<Class<?>, String> sources = new LinkedHashMap<>();
+        Map<Class<?>, Throwable> failures = new LinkedHashMap<>();
+
+        for (Class<?> clazz : classes) {
+            try {
+                sources.put(clazz, parser.parseClass(clazz));
+            } catch (RuntimeException | LinkageError exception) {
+                failures.put(clazz, exception);
+            }
+        }
+
+        return new ParsingResult(sources, failures);
+    }
+
+    /**
+     * Finds for each class the outermost enclosing class which is also present in collection
+     *
+     * @param classes                classes for parsing
+     * @param enclosingClassResolver function obtains class which parsed code contains code of given class
+     * @return map where key is class and value is class which should be parsed instead of it
+     */
+    private static Map<Class<?>, Class<?>> getOuterClasses(Collection<Class<?>> classes,
+                                                           Function<Class<?>, Class<?>> enclosingClassResolver) {
+        Set<Class<?>> uniqueClasses = new LinkedHashSet<>(classes);
+        uniqueClasses.remove(null);
+
+        Map<Class<?>, Class<?>> outerClasses = new LinkedHashMap<>();
+        for (Class<?> clazz : uniqueClasses) {
+            Class<?> outerClass = clazz;
+            Class<?> enclosingClass = enclosingClassResolver.apply(clazz);
+            while (enclosingClass != null) {
+                if (uniqueClasses.contains(enclosingClass)) {
+                    outerClass = enclosingClass;
+                }
+                enclosingClass = enclosingClassResolver.apply(enclosingClass);
+            }
+
+            outerClasses.put(clazz, outerClass);
+        }
+
+        return outerClasses;
+    }
+
+    /**
+     * Submits parsing of batch to executor
+     *
+     * @param batchParser function parses batch of classes
+     * @param batch       classes for parsing
+     * @param executor    executor or null for parsing in current thread
+     * @return future of parsing result
+     */
+    private static CompletableFuture<ParsingResult> submit(Function<List<Class<?>>, ParsingResult> batchParser,
+                                                           List<Class<?>> batch,
+                                                           Executor executor) {
+        try {
+            if (executor != null) {
+                return CompletableFuture.supplyAsync(() -> batchParser.apply(batch), executor);
+            }
+
+            return CompletableFuture.completedFuture(batchParser.apply(batch));
+        } catch (RuntimeException | LinkageError exception) {
+            CompletableFuture<ParsingResult> future = new CompletableFuture<>();
+            future.completeExceptionally(exception);
+            return future;
+        }
+    }
+}
\ No newline at end of file
@@ -4,7 +4,10 @@ import com.classparser.bytecode.api.Decompiler;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.decompile.javap.configuration.JavaPrinterBuilderConfiguration;
 import com.classparser.bytecode.decompile.javap.configuration.JavaPrinterConfiguration;
+import com.classparser.bytecode.exception.decompile.DecompilationException;
 import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.Deadline;
+import com.classparser.bytecode.utils.ImplementationVersionUtils;
 import com.classparser.util.ConfigurationUtils;
 import com.sun.tools.javap.*;
 
@@ -23,6 +26,9 @@ import static com.classparser.bytecode.decompile.javap.configuration.JavaPrinter
  * Disassembler version uses on depend current jdk
  * <p>
  * This disassembler can disassemble all types bytecode of classes
+ * <p>
+ * Java printer doesn't load referenced classes, so {@link Deadline} of current thread
+ * is checked only before disassembling, running disassembling can't be stopped
  *
  * @author Aleksei Makarov
  * @since 1.0.0
@@ -31,78 +37,186 @@ public final class JavaPrinterDisassembler implements Decompiler {
 
     private final ConfigurationUtils utils;
 
+    private final ThreadLocal<JavaPrinterSession> sessions;
+
+    private volatile JavaPrinterOptions options;
+
     public JavaPrinterDisassembler() {
         this.utils = new ConfigurationUtils(getDefaultConfiguration());
+        this.sessions = new ThreadLocal<>();
     }
 
     @Override
     public String decompile(byte[] bytecode, Collection<byte[]> classes) {
-        Map<String, byte[]> bytecodeMap = new HashMap<>();
-        String className = ClassNameConverter.getClassName(bytecode);
-        bytecodeMap.put(className, bytecode);
-        for (byte[] innerClassByteCode : classes) {
-            bytecodeMap.put(ClassNameConverter.getClassName(innerClassByteCode), innerClassByteCode);
+        StringBuilder disassembledCode = new StringBuilder();
+        decompile(bytecode, classes, disassembledCode);
+
+        return disassembledCode.toString();
+    }
+
+    @Override
+    public void decompile(byte[] bytecode, Collection<byte[]> classes, Appendable output) {
+        if (bytecode == null || classes == null) {
+            throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
         }
 
-        List<String> classesList = new ArrayList<>();
-        classesList.add(className);
+        disassemble(Collections.singletonList(new DisassembledClass(bytecode, classes, output)));
+    }
 
-        Context context = new Context();
-        context.put(Messages.class, new JavaPrinterMessages());
-        context.put(Options.class, prepareAndGetOptions(context));
+    /**
+     * Disassembles several classes by one run of java printer task
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @return map where key is byte code of class and value is disassembled code
+     */
+    @Override
+    public Map<byte[], String> decompileAll(Map<byte[], Collection<byte[]>> byteCodes) {
+        List<DisassembledClass> disassembledClasses = createDisassembledClasses(byteCodes, null);
+        disassemble(disassembledClasses);
 
-        List<String> options = new ArrayList<>();
-        if (!classes.isEmpty()) {
-            options.add("-XDinner");
+        Map<byte[], String> disassembledCodes = new LinkedHashMap<>();
+        for (DisassembledClass disassembledClass : disassembledClasses) {
+            disassembledCodes.put(disassembledClass.bytecode, disassembledClass.output.toString());
         }
 
-        StringPrintWriter stringPrintWriter = new StringPrintWriter();
-        JavapTask task = new BytecodeJavaPrinterTask(stringPrintWriter, options, classesList, bytecodeMap, context);
+        return disassembledCodes;
+    }
 
-        task.run();
+    /**
+     * Disassembles several classes by one run of java printer task
+     * and writes disassembled code of all classes to writer one by one
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @param writer    output for disassembled code
+     */
+    public void decompileAll(Map<byte[], Collection<byte[]>> byteCodes, Writer writer) {
+        if (writer == null) {
+            throw new DecompilationException("Writer for disassembled code can't be a null!");
+        }
 
-        return stringPrintWriter.getDisassembledCode();
+        disassemble(createDisassembledClasses(byteCodes, writer));
     }
 
     /**
-     * Parses and creates options for java printer disassembler
+     * Creates descriptions of disassembled classes
+     *
+     * @param byteCodes map where key is byte code of class
+     *                  and value is byte code of its inner classes
+     * @param output    common output of classes or null if each class
+     *                  should be written to own string builder
+     * @return list of disassembled classes
      */
-    private Options prepareAndGetOptions(Context context) {
-        Options options = Options.instance(context);
+    private List<DisassembledClass> createDisassembledClasses(Map<byte[], Collection<byte[]>> byteCodes,
+                                                              Appendable output) {
+        if (byteCodes == null) {
+            throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        }
 
-        options.showAllAttrs = utils.getConfigOption(DISPLAY_ATTRIBUTES_OF_CODE_KEY, Boolean.class);
-        options.showDisassembled = utils.getConfigOption(DISPLAY_DECOMPILE_CODE_KEY, Boolean.class);
-        options.showLineAndLocalVariableTables =
-                utils.getConfigOption(DISPLAY_CODE_LINE_AND_LOCAL_VARIABLE_KEY, Boolean.class);
-        options.sysInfo = utils.getConfigOption(DISPLAY_SYSTEM_INFORMATION_KEY, Boolean.class);
-        options.verbose = utils.getConfigOption(DISPLAY_VERBOSE_INFORMATION_KEY, Boolean.class);
-        options.showConstants = utils.getConfigOption(DISPLAY_CONSTANTS_KEY, Boolean.class);
-        options.indentWidth = utils.getConfigOption(INDENT_COUNT_SPACES_KEY, Integer.class);
+        List<DisassembledClass> disassembledClasses = new ArrayList<>(byteCodes.size());
+        for (Map.Entry<byte[], Collection<byte[]>> entry : byteCodes.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+            }
 
-        for (Object access : utils.getConfigOption(DISPLAY_MODIFIER_ACCESSOR_KEY, Set.class)) {
-            if (access instanceof AccessModifier) {
-                AccessModifier accessModifier = (AccessModifier) access;
-                options.showAccess += accessModifier.getModifier();
-                options.accessOptions.add(accessModifier.getName());
+            Appendable classOutput = output != null ? output : new StringBuilder();
+            disassembledClasses.add(new DisassembledClass(entry.getKey(), entry.getValue(), classOutput));
+        }
+
+        return disassembledClasses;
+    }
+
+    /**
+     * Disassembles classes by java printer task of current thread
+     *
+     * @param disassembledClasses classes for disassemble process
+     * @throws DecompilationException if any class can't be disassembled
+     */
+    private void disassemble(List<DisassembledClass> disassembledClasses) {
+        Deadline.checkCurrent();
+        JavaPrinterSession session = getSession();
+        session.task.disassemble(disassembledClasses);
+
+        for (DisassembledClass disassembledClass : disassembledClasses) {
+            if (disassembledClass.error != null) {
+                throw new DecompilationException("Class " + disassembledClass.className + " can't be disassembled",
+                        disassembledClass.error);
             }
         }
+    }
+
+    /**
+     * Obtains java printer session of current thread
+     * Session is recreated if options of disassembler were changed
+     *
+     * @return java printer session
+     */
+    private JavaPrinterSession getSession() {
+        JavaPrinterOptions currentOptions = getOptions();
+
+        JavaPrinterSession session = sessions.get();
+        if (session == null || session.options != currentOptions) {
+            session = new JavaPrinterSession(currentOptions);
+            sessions.set(session);
+        }
+
+        return session;
+    }
 
-        for (Object object : utils.getConfigOption(APPEND_DISPLAY_DETAILS_KEY, Set.class)) {
-            if (object instanceof InstructionDetailWriter.Kind) {
-                InstructionDetailWriter.Kind kind = (InstructionDetailWriter.Kind) object;
-                options.details.add(kind);
+    /**
+     * Obtains read options of disassembler
+     * If configuration manager isn't set, then default
+     * configuration manager is created and set once
+     *
+     * @return options of disassembler
+     */
+    private JavaPrinterOptions getOptions() {
+        JavaPrinterOptions currentOptions = options;
+        if (currentOptions == null) {
+            synchronized (utils) {
+                if (options == null) {
+                    setConfigurationManager(new ConfigurationManager());
+                }
+
+                currentOptions = options;
             }
         }
 
-        options.showDescriptors = utils.getConfigOption(DISPLAY_DESCRIPTORS_KEY, Boolean.class);
+        return currentOptions;
+    }
 
-        return options;
+    /**
+     * Obtains version of javap library
+     *
+     * @return version of decompiler
+     */
+    @Override
+    public String getVersion() {
+        return ImplementationVersionUtils.getImplementationVersion(JavapTask.class);
     }
 
+    /**
+     * Sets configuration manager into disassembler
+     * Options are read only if configuration manager is changed
+     * or configuration of it was reloaded
+     *
+     * @param configurationManager current configuration manager
+     */
     @Override
     public void setConfigurationManager(ConfigurationManager configurationManager) {
         if (configurationManager != null) {
-            this.utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+            long epoch = configurationManager.getConfigurationEpoch();
+
+            synchronized (utils) {
+                JavaPrinterOptions currentOptions = options;
+                if (currentOptions == null
+                        || currentOptions.configurationManager != configurationManager
+                        || currentOptions.epoch != epoch) {
+                    utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+                    options = new JavaPrinterOptions(configurationManager, epoch, utils);
+                }
+            }
         } else {
             throw new NullPointerException("Configuration manager is can't be a null!");
         }
@@ -135,6 +249,140 @@ public final class JavaPrinterDisassembler implements Decompiler {
                 .getConfiguration();
     }
 
+    /**
+     * Options of java printer which are read for configuration epoch
+     */
+    private static class JavaPrinterOptions {
+
+        private final ConfigurationManager configurationManager;
+
+        private final long epoch;
+
+        private final boolean showAllAttrs;
+
+        private final boolean showDisassembled;
+
+        private final boolean showLineAndLocalVariableTables;
+
+        private final boolean sysInfo;
+
+        private final boolean verbose;
+
+        private final boolean showConstants;
+
+        private final int indentWidth;
+
+        private final Set<?> accessModifiers;
+
+        private final Set<?> details;
+
+        private final boolean showDescriptors;
+
+        private JavaPrinterOptions(ConfigurationManager configurationManager, long epoch, ConfigurationUtils utils) {
+            this.configurationManager = configurationManager;
+            this.epoch = epoch;
+            this.showAllAttrs = utils.getConfigOption(DISPLAY_ATTRIBUTES_OF_CODE_KEY, Boolean.class);
+            this.showDisassembled = utils.getConfigOption(DISPLAY_DECOMPILE_CODE_KEY, Boolean.class);
+            this.showLineAndLocalVariableTables =
+                    utils.getConfigOption(DISPLAY_CODE_LINE_AND_LOCAL_VARIABLE_KEY, Boolean.class);
+            this.sysInfo = utils.getConfigOption(DISPLAY_SYSTEM_INFORMATION_KEY, Boolean.class);
+            this.verbose = utils.getConfigOption(DISPLAY_VERBOSE_INFORMATION_KEY, Boolean.class);
+            this.showConstants = utils.getConfigOption(DISPLAY_CONSTANTS_KEY, Boolean.class);
+            this.indentWidth = utils.getConfigOption(INDENT_COUNT_SPACES_KEY, Integer.class);
+            this.accessModifiers = utils.getConfigOption(DISPLAY_MODIFIER_ACCESSOR_KEY, Set.class);
+            this.details = utils.getConfigOption(APPEND_DISPLAY_DETAILS_KEY, Set.class);
+            this.showDescriptors = utils.getConfigOption(DISPLAY_DESCRIPTORS_KEY, Boolean.class);
+        }
+
+        /**
+         * Sets options into options of java printer disassembler
+         *
+         * @param options options of java printer task
+         */
+        private void applyTo(Options options) {
+            options.showAllAttrs = showAllAttrs;
+            options.showDisassembled = showDisassembled;
+            options.showLineAndLocalVariableTables = showLineAndLocalVariableTables;
+            options.sysInfo = sysInfo;
+            options.verbose = verbose;
+            options.showConstants = showConstants;
+            options.indentWidth = indentWidth;
+
+            for (Object access : accessModifiers) {
+                if (access instanceof AccessModifier) {
+                    AccessModifier accessModifier = (AccessModifier) access;
+                    options.showAccess += accessModifier.getModifier();
+                    options.accessOptions.add(accessModifier.getName());
+                }
+            }
+
+            for (Object object : details) {
+                if (object instanceof InstructionDetailWriter.Kind) {
+                    InstructionDetailWriter.Kind kind = (InstructionDetailWriter.Kind) object;
+                    options.details.add(kind);
+                }
+            }
+
+            options.showDescriptors = showDescriptors;
+        }
+    }
+
+    /**
+     * Java printer session of one thread
+     * Context of task keeps all writers of java printer,
+     * so they are created only once for session
+     */
+    private static class JavaPrinterSession {
+
+        private final JavaPrinterOptions options;
+
+        private final BytecodeJavaPrinterTask task;
+
+        private JavaPrinterSession(JavaPrinterOptions options) {
+            this.options = options;
+            this.task = new BytecodeJavaPrinterTask(new AppendablePrintWriter(), options);
+        }
+    }
+
+    /**
+     * Class for disassemble process with its inner classes and output
+     * Names of classes are computed only once
+     */
+    private static class DisassembledClass {
+
+        private final byte[] bytecode;
+
+        private final String className;
+
+        private final Map<String, byte[]> bytecodeMap;
+
+        private final boolean hasInnerClasses;
+
+        private final Appendable output;
+
+        private Exception error;
+
+        /**
+         * Default constructor for initialize of {@link DisassembledClass}
+         *
+         * @param bytecode bytecode of class
+         * @param classes  bytecode of inner classes
+         * @param output   output for disassembled code
+         */
+        DisassembledClass(byte[] bytecode, Collection<byte[]> classes, Appendable output) {
+            this.bytecode = bytecode;
+            this.className = ClassNameConverter.getClassName(bytecode);
+            this.bytecodeMap = new HashMap<>();
+            this.hasInnerClasses = !classes.isEmpty();
+            this.output = output;
+
+            bytecodeMap.put(className, bytecode);
+            for (byte[] innerClassByteCode : classes) {
+                bytecodeMap.put(ClassNameConverter.getClassName(innerClassByteCode), innerClassByteCode);
+            }
+        }
+    }
+
     /**
      * Implementation of {@link SimpleJavaFileObject} which create class input stream
      * from bytecode of class
@@ -150,12 +398,13 @@ public final class JavaPrinterDisassembler implements Decompiler {
         /**
          * Default constructor for initialize of {@link ByteArrayJavaFileObject}
          *
-         * @param bytecode bytecode of class
+         * @param className name of class
+         * @param bytecode  bytecode of class
          */
-        ByteArrayJavaFileObject(byte[] bytecode) {
+        ByteArrayJavaFileObject(String className, byte[] bytecode) {
             super(URI.create(EMPTY_URI), Kind.CLASS);
             this.bytecode = bytecode;
-            this.className = ClassNameConverter.getClassName(bytecode);
+            this.className = className;
         }
 
         @Override
@@ -172,68 +421,151 @@ public final class JavaPrinterDisassembler implements Decompiler {
     /**
      * Implementation of {@link JavapTask} uses {@link ByteArrayJavaFileObject}
      * for loading class files to current process of task
+     * Task is created with one placeholder class, all classes of batch
+     * are written by one run of task when placeholder class is written
      */
     private static class BytecodeJavaPrinterTask extends JavapTask {
 
         private static final DiagnosticListener<JavaFileObject> STUB = (empty) -> {
         };
 
-        private final Map<String, byte[]> bytecodeMap;
+        private static final String BATCH_CLASS_NAME = "classparser.batch";
+
+        private static final int EXIT_CODE_OK = 0;
+
+        private final AppendablePrintWriter writer;
+
+        private final Options taskOptions;
+
+        private List<DisassembledClass> disassembledClasses;
+
+        private DisassembledClass currentClass;
 
         /**
          * Default constructor for initialize of {@link BytecodeJavaPrinterTask}
          *
-         * @param writer      out class writer
-         * @param options     java printer task options
-         * @param classes     classes for disassemble process
-         * @param bytecodeMap bytecode map of classes
-         * @param context     current disassemble context
+         * @param writer  out class writer
+         * @param options options of java printer
+         */
+        BytecodeJavaPrinterTask(AppendablePrintWriter writer, JavaPrinterOptions options) {
+            super(writer, null, STUB, Collections.emptyList(), Collections.singletonList(BATCH_CLASS_NAME));
+            this.writer = writer;
+            this.taskOptions = Options.instance(context);
+            this.disassembledClasses = Collections.emptyList();
+
+            context.put(Messages.class, new JavaPrinterMessages());
+            options.applyTo(taskOptions);
+        }
+
+        /**
+         * Disassembles classes and writes code of each class to its output
+         *
+         * @param disassembledClasses classes for disassemble process
          */
-        BytecodeJavaPrinterTask(Writer writer,
-                                Iterable<String> options,
-                                Iterable<String> classes,
-                                Map<String, byte[]> bytecodeMap,
-                                Context context) {
-            super(writer, null, STUB, options, classes);
-            this.bytecodeMap = bytecodeMap;
-            this.context = context;
+        void disassemble(List<DisassembledClass> disassembledClasses) {
+            this.disassembledClasses = disassembledClasses;
+            try {
+                run();
+            } finally {
+                this.disassembledClasses = Collections.emptyList();
+                this.currentClass = null;
+                this.writer.setOutput(null);
+            }
+        }
+
+        @Override
+        protected int writeClass(ClassWriter classWriter, String className) {
+            if (BATCH_CLASS_NAME.equals(className)) {
+                return writeClasses(classWriter);
+            }
+
+            try {
+                return super.writeClass(classWriter, className);
+            } catch (RuntimeException exception) {
+                throw exception;
+            } catch (Exception exception) {
+                throw new DecompilationException("Class " + className + " can't be disassembled", exception);
+            }
+        }
+
+        /**
+         * Writes all classes of batch, error of one class
+         * does not prevent writing of other classes
+         *
+         * @param classWriter class writer of task
+         * @return exit code of task
+         */
+        private int writeClasses(ClassWriter classWriter) {
+            for (DisassembledClass disassembledClass : disassembledClasses) {
+                currentClass = disassembledClass;
+                writer.setOutput(disassembledClass.output);
+                taskOptions.showInnerClasses = disassembledClass.hasInnerClasses;
+                try {
+                    writeClass(classWriter, disassembledClass.className);
+                    writer.checkOutputError();
+                } catch (RuntimeException exception) {
+                    disassembledClass.error = exception;
+                }
+            }
+
+            return EXIT_CODE_OK;
         }
 
         @Override
         protected JavaFileObject open(String className) {
-            byte[] bytes = bytecodeMap.get(className);
-            return new ByteArrayJavaFileObject(bytes);
+            byte[] bytes = currentClass != null ? currentClass.bytecodeMap.get(className) : null;
+            return bytes != null ? new ByteArrayJavaFileObject(className, bytes) : null;
         }
     }
 
     /**
-     * Implementation of {@link PrintWriter} which store result of {@link #println(Object)}
-     * operation to StringBuilder
+     * Implementation of {@link PrintWriter} which writes result of {@link #println(Object)}
+     * operation directly to output
+     * Output is changed for each disassembled class
      */
-    private static class StringPrintWriter extends PrintWriter {
+    private static class AppendablePrintWriter extends PrintWriter {
 
-        private final StringBuilder stringBuilder;
+        private Appendable output;
+
+        private IOException outputError;
 
         /**
-         * Default constructor for initialize of {@link StringPrintWriter}
+         * Default constructor for initialize of {@link AppendablePrintWriter}
          */
-        StringPrintWriter() {
+        AppendablePrintWriter() {
             super(new StringWriter());
-            this.stringBuilder = new StringBuilder();
+        }
+
+        /**
+         * Sets output for disassembled code and resets error of previous output
+         *
+         * @param output output for disassembled code
+         */
+        void setOutput(Appendable output) {
+            this.output = output;
+            this.outputError = null;
         }
 
         @Override
         public void println(Object object) {
-            stringBuilder.append(object).append("\n");
+            if (output != null && outputError == null) {
+                try {
+                    output.append(String.valueOf(object)).append('\n');
+                } catch (IOException exception) {
+                    outputError = exception;
+                }
+            }
         }
 
         /**
-         * Obtains disassembled code of class
+         * Checks if disassembled code was written to output without errors
          *
-         * @return disassembled code of class
+         * @throws DecompilationException if disassembled code can't be written to output
          */
-        String getDisassembledCode() {
-            return stringBuilder.toString();
+        void checkOutputError() {
+            if (outputError != null) {
+                throw new DecompilationException("Disassembled code can't be written to output", outputError);
+            }
         }
     }
 
@@ -1,20 +1,29 @@
 package com.classparser.bytecode.decompile.jd;
 
+import com.classparser.bytecode.api.ByteCodeCollector;
 import com.classparser.bytecode.api.Decompiler;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.decompile.jd.configuration.JDBuilderConfiguration;
 import com.classparser.bytecode.exception.decompile.DecompilationException;
+import com.classparser.bytecode.exception.decompile.DecompilationTimeoutException;
 import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.Deadline;
+import com.classparser.bytecode.utils.ImplementationVersionUtils;
 import com.classparser.util.ConfigurationUtils;
 import org.jd.core.v1.ClassFileToJavaSourceDecompiler;
 import org.jd.core.v1.api.loader.Loader;
 import org.jd.core.v1.api.printer.Printer;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import static com.classparser.bytecode.decompile.jd.configuration.JDConfiguration.COUNT_INDENT_SPACES_KEY;
 import static com.classparser.bytecode.decompile.jd.configuration.JDConfiguration.MERGE_EMPTY_LINES_KEY;
@@ -33,51 +42,165 @@ import static com.classparser.bytecode.decompile.jd.configuration.JDConfiguratio
  */
 public final class JDDecompiler implements Decompiler {
 
+    private static final int MAX_IDLE_SESSIONS = Runtime.getRuntime().availableProcessors();
+
+    private static final int MAX_SESSION_DECOMPILATIONS = 1000;
+
     private final ConfigurationUtils utils;
 
+    private final BlockingQueue<JDSession> sessions;
+
+    private volatile JDOptions options;
+
     /**
      * Default constructor for creating {@link JDDecompiler} instance
      */
     public JDDecompiler() {
         this.utils = new ConfigurationUtils(getDefaultConfiguration());
+        this.sessions = new ArrayBlockingQueue<>(MAX_IDLE_SESSIONS);
     }
 
     @Override
     public String decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes) {
-        if (byteCode != null && nestedClassesByteCodes != null) {
-            org.jd.core.v1.api.Decompiler decompiler = new ClassFileToJavaSourceDecompiler();
+        StringBuilder source = new StringBuilder();
+        decompile(byteCode, nestedClassesByteCodes, source);
 
-            Loader loader = new JDLoader(byteCode, nestedClassesByteCodes);
-            JDPrinter printer = new JDPrinter();
-            String mainClassName = ClassNameConverter.getClassName(byteCode);
-            try {
-                decompiler.decompile(loader, printer, mainClassName, getConfiguration(loader));
+        return source.toString();
+    }
 
-                return printer.getSource();
-            } catch (Exception exception) {
-                throw new DecompilationException("Decompilcation process was interrupt with exception", exception);
+    /**
+     * Decompiles byte code and writes decompiled code to output
+     * Decompiler and its type maker are borrowed from pool of sessions,
+     * so types resolved by previous decompilations are reused
+     * Type maker caches types only by class name, so session is not used
+     * for class which name was already seen by session with other byte code
+     * {@link Deadline} of current thread is checked after decompilation, because
+     * type maker of JD ignores failures of loading of referenced classes
+     *
+     * @param byteCode               byte code of class
+     * @param nestedClassesByteCodes byte code of inner classes
+     * @param output                 output for decompiled code
+     */
+    @Override
+    public void decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes, Appendable output) {
+        if (byteCode == null || nestedClassesByteCodes == null) {
+            throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        }
+
+        JDSession session = borrowSession();
+        if (!session.loader.setDecompiledClasses(byteCode, nestedClassesByteCodes)) {
+            session = new JDSession(session.options);
+            session.decompilations++;
+            session.loader.setDecompiledClasses(byteCode, nestedClassesByteCodes);
+        }
+
+        JDPrinter printer = new JDPrinter(session.options, output);
+        String mainClassName = ClassNameConverter.getClassName(byteCode);
+        try {
+            session.decompiler.decompile(session.loader, printer, mainClassName, session.configuration);
+            Deadline.checkCurrent();
+        } catch (DecompilationTimeoutException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new DecompilationException("Decompilcation process was interrupt with exception", exception);
+        }
+
+        releaseSession(session);
+    }
+
+    /**
+     * Obtains idle session from pool or creates new one
+     * Sessions created for other options are dropped
+     *
+     * @return decompilation session
+     */
+    private JDSession borrowSession() {
+        JDOptions currentOptions = getOptions();
+
+        JDSession session;
+        while ((session = sessions.poll()) != null) {
+            if (session.options == currentOptions && session.decompilations < MAX_SESSION_DECOMPILATIONS) {
+                break;
             }
         }
 
-        throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        if (session == null) {
+            session = new JDSession(currentOptions);
+        }
+
+        session.decompilations++;
+        return session;
     }
 
-    private Map<String, Object> getConfiguration(Loader loader) {
-        Map<String, Object> configuration = new HashMap<>();
+    /**
+     * Obtains compiled options of decompiler
+     * If configuration manager isn't set, then default
+     * configuration manager is created and set once
+     *
+     * @return options of decompiler
+     */
+    private JDOptions getOptions() {
+        JDOptions currentOptions = options;
+        if (currentOptions == null) {
+            synchronized (utils) {
+                if (options == null) {
+                    setConfigurationManager(new ConfigurationManager());
+                }
 
-        configuration.put("realignLineNumbers", utils.getConfigOption(REALIGNMENT_LINE_NUMBER_KEY, Boolean.class));
-        if (utils.hasOptionExists(TYPE_MAKER_KEY)) {
-            configuration.put("typeMaker", utils.getConfigOption(TYPE_MAKER_KEY, TypeMaker.class));
-        } else {
-            configuration.put("typeMaker", new TypeMaker(loader));
+                currentOptions = options;
+            }
         }
 
-        return configuration;
+        return currentOptions;
     }
 
+    /**
+     * Returns session to pool after successful decompilation
+     * Session is dropped if pool is full or if referenced class
+     * was loaded with byte code differing from byte code seen by session before
+     *
+     * @param session decompilation session
+     */
+    private void releaseSession(JDSession session) {
+        session.loader.clearDecompiledClasses();
+        if (!session.loader.isStale()) {
+            sessions.offer(session);
+        }
+    }
+
+    /**
+     * Obtains version of JD library
+     *
+     * @return version of decompiler
+     */
+    @Override
+    public String getVersion() {
+        return ImplementationVersionUtils.getImplementationVersion(ClassFileToJavaSourceDecompiler.class);
+    }
+
+    /**
+     * Sets configuration manager into decompiler
+     * Options are compiled only if configuration manager is changed
+     * or configuration of it was reloaded
+     *
+     * @param configurationManager current configuration manager
+     */
     @Override
     public void setConfigurationManager(ConfigurationManager configurationManager) {
-        this.utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+        if (configurationManager != null) {
+            long epoch = configurationManager.getConfigurationEpoch();
+
+            synchronized (utils) {
+                JDOptions currentOptions = options;
+                if (currentOptions == null
+                        || currentOptions.configurationManager != configurationManager
+                        || currentOptions.epoch != epoch) {
+                    utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+                    options = new JDOptions(configurationManager, epoch, utils);
+                    sessions.clear();
+                }
+            }
+        }
     }
 
     /**
@@ -96,54 +219,243 @@ public final class JDDecompiler implements Decompiler {
                 .getConfiguration();
     }
 
+    /**
+     * Compiled options of decompiler for configuration epoch
+     */
+    private static class JDOptions {
+
+        private final ConfigurationManager configurationManager;
+
+        private final long epoch;
+
+        private final boolean isRealignLineNumbers;
+
+        private final TypeMaker typeMaker;
+
+        private final boolean isMergeEmptyLines;
+
+        private final boolean isDisplayLineNumbers;
+
+        private final String indentSpaces;
+
+        private JDOptions(ConfigurationManager configurationManager, long epoch, ConfigurationUtils utils) {
+            this.configurationManager = configurationManager;
+            this.epoch = epoch;
+            this.isRealignLineNumbers = utils.getConfigOption(REALIGNMENT_LINE_NUMBER_KEY, Boolean.class);
+            this.typeMaker = utils.hasOptionExists(TYPE_MAKER_KEY) ? utils.getConfigOption(TYPE_MAKER_KEY, TypeMaker.class) : null;
+            this.isMergeEmptyLines = utils.getConfigOption(MERGE_EMPTY_LINES_KEY, Boolean.class);
+            this.isDisplayLineNumbers = utils.getConfigOption(SHOW_LINE_NUMBERS_KEY, Boolean.class);
+            this.indentSpaces = utils.getConfigOption(COUNT_INDENT_SPACES_KEY, String.class);
+        }
+    }
+
+    /**
+     * Decompilation session is used only by one thread at the same time
+     * Holds decompiler, loader and type maker, type maker is not thread safe,
+     * so it is reused only by sequential decompilations of session
+     */
+    private static class JDSession {
+
+        private final JDOptions options;
+
+        private final org.jd.core.v1.api.Decompiler decompiler;
+
+        private final JDLoader loader;
+
+        private final Map<String, Object> configuration;
+
+        private int decompilations;
+
+        private JDSession(JDOptions options) {
+            this.options = options;
+            this.decompiler = new ClassFileToJavaSourceDecompiler();
+            this.loader = new JDLoader(options.configurationManager.getByteCodeCollector());
+
+            Map<String, Object> configuration = new HashMap<>();
+            configuration.put("realignLineNumbers", options.isRealignLineNumbers);
+            configuration.put("typeMaker", options.typeMaker != null ? options.typeMaker : new TypeMaker(loader));
+            this.configuration = Collections.unmodifiableMap(configuration);
+        }
+    }
+
     /**
      * Class uses for loading byte code into decompiler
+     * Decompiled classes are taken from current decompilation,
+     * referenced classes are loaded by byte code collector
+     * <p>
+     * Loader remembers hash of byte code of each class passed to type maker
+     * of session, so session with other byte code of the same class is detected
      */
     private static class JDLoader implements Loader {
 
+        private final ByteCodeCollector collector;
+
         private final Map<String, byte[]> byteCodesMap;
 
+        private final Map<String, byte[]> referencedByteCodesMap;
+
+        private final Map<String, Long> byteCodeHashes;
+
+        private String innerClassPrefix;
+
+        private boolean isStale;
+
         /**
          * Default constructor for creating jd loader
          *
-         * @param mainByteCode byte code of class
+         * @param collector byte code collector of referenced classes
+         */
+        private JDLoader(ByteCodeCollector collector) {
+            this.collector = collector;
+            this.byteCodesMap = new HashMap<>();
+            this.referencedByteCodesMap = new HashMap<>();
+            this.byteCodeHashes = new HashMap<>();
+        }
+
+        /**
+         * Sets classes for current decompilation
+         *
+         * @param mainByteCode           byte code of class
+         * @param nestedClassesByteCodes byte code of inner classes
+         * @return false if session already has seen other byte code of some class
          */
-        public JDLoader(byte[] mainByteCode, Collection<byte[]> nestedClassesByteCodes) {
-            Map<String, byte[]> byteCodesMap = new HashMap<>();
+        private boolean setDecompiledClasses(byte[] mainByteCode, Collection<byte[]> nestedClassesByteCodes) {
+            String className = ClassNameConverter.getClassName(mainByteCode);
 
-            byteCodesMap.put(ClassNameConverter.getClassName(mainByteCode), mainByteCode);
+            boolean isConsistent = registerByteCode(className, mainByteCode);
+            byteCodesMap.put(className, mainByteCode);
             for (byte[] nestedClassesByteCode : nestedClassesByteCodes) {
-                byteCodesMap.put(ClassNameConverter.getClassName(nestedClassesByteCode), nestedClassesByteCode);
+                String nestedClassName = ClassNameConverter.getClassName(nestedClassesByteCode);
+                isConsistent &= registerByteCode(nestedClassName, nestedClassesByteCode);
+                byteCodesMap.put(nestedClassName, nestedClassesByteCode);
             }
 
-            this.byteCodesMap = byteCodesMap;
+            this.innerClassPrefix = className + '$';
+            return isConsistent;
+        }
+
+        /**
+         * Checks if loader has seen other byte code of referenced class
+         *
+         * @return true if types of session can be stale
+         */
+        private boolean isStale() {
+            return isStale;
+        }
+
+        /**
+         * Remembers hash of byte code of class
+         *
+         * @param className class name in internal form
+         * @param byteCode  byte code of class
+         * @return false if other byte code of class was registered before
+         */
+        private boolean registerByteCode(String className, byte[] byteCode) {
+            long hash = ((long) byteCode.length << 32) | (Arrays.hashCode(byteCode) & 0xFFFFFFFFL);
+            Long previousHash = byteCodeHashes.putIfAbsent(className, hash);
+
+            return previousHash == null || previousHash == hash;
+        }
+
+        /**
+         * Removes classes of finished decompilation
+         */
+        private void clearDecompiledClasses() {
+            byteCodesMap.clear();
+            referencedByteCodesMap.clear();
+            innerClassPrefix = null;
         }
 
         @Override
         public byte[] load(String className) {
-            return byteCodesMap.get(className);
+            byte[] byteCode = byteCodesMap.get(className);
+            if (byteCode == null) {
+                byteCode = loadReferencedByteCode(className);
+            }
+
+            return byteCode;
         }
 
         @Override
         public boolean canLoad(String className) {
-            return true;
+            return byteCodesMap.containsKey(className) || loadReferencedByteCode(className) != null;
+        }
+
+        /**
+         * Loads byte code of referenced class by byte code collector
+         * Result is kept until end of decompilation, because decompiler
+         * checks class and loads it by two separate calls
+         * {@link Deadline} of current thread is checked before loading
+         *
+         * @param className class name in internal form
+         * @return byte code of class or null if it can't be loaded
+         */
+        private byte[] loadReferencedByteCode(String className) {
+            Deadline.checkCurrent();
+            if (innerClassPrefix == null || className.contains(innerClassPrefix)) {
+                return null;
+            }
+
+            if (referencedByteCodesMap.containsKey(className)) {
+                return referencedByteCodesMap.get(className);
+            }
+
+            byte[] byteCode = null;
+            Class<?> clazz = loadClass(ClassNameConverter.toJavaClassName(className));
+            if (clazz != null) {
+                byteCode = collector.getByteCode(clazz);
+            }
+
+            if (byteCode != null && !registerByteCode(className, byteCode)) {
+                isStale = true;
+            }
+
+            referencedByteCodesMap.put(className, byteCode);
+            return byteCode;
+        }
+
+        /**
+         * Try load class by full class name
+         *
+         * @param className name of class
+         * @return class instance or null if class not found
+         */
+        private Class<?> loadClass(String className) {
+            try {
+                return Class.forName(className);
+            } catch (ClassNotFoundException | LinkageError ignore) {
+                return null;
+            }
         }
     }
 
-    private class JDPrinter implements Printer {
+    private static class JDPrinter implements Printer {
 
         private final String NEW_LINE = System.lineSeparator();
 
-        private final StringBuilder sourceBuilder = new StringBuilder();
+        private final Appendable output;
 
-        private final boolean isMergeEmptyLines = utils.getConfigOption(MERGE_EMPTY_LINES_KEY, Boolean.class);
+        private final boolean isMergeEmptyLines;
 
-        private final boolean isDisplayLineNumbers = utils.getConfigOption(SHOW_LINE_NUMBERS_KEY, Boolean.class);
+        private final boolean isDisplayLineNumbers;
 
-        private final String indentSpaces = utils.getConfigOption(COUNT_INDENT_SPACES_KEY, String.class);
+        private final String indentSpaces;
 
         private int indentCounter;
 
+        /**
+         * Constructor for init printer
+         *
+         * @param options options of decompiler
+         * @param output  output for decompiled code
+         */
+        private JDPrinter(JDOptions options, Appendable output) {
+            this.output = output;
+            this.isMergeEmptyLines = options.isMergeEmptyLines;
+            this.isDisplayLineNumbers = options.isDisplayLineNumbers;
+            this.indentSpaces = options.indentSpaces;
+        }
+
         @Override
         public void start(int maxLineNumber, int majorVersion, int minorVersion) {
         }
@@ -154,32 +466,32 @@ public final class JDDecompiler implements Decompiler {
 
         @Override
         public void printText(String text) {
-            sourceBuilder.append(text);
+            append(text);
         }
 
         @Override
         public void printNumericConstant(String constant) {
-            sourceBuilder.append(constant);
+            append(constant);
         }
 
         @Override
         public void printStringConstant(String constant, String ownerInternalName) {
-            sourceBuilder.append(constant);
+            append(constant);
         }
 
         @Override
         public void printKeyword(String keyword) {
-            sourceBuilder.append(keyword);
+            append(keyword);
         }
 
         @Override
         public void printDeclaration(int type, String internalTypeName, String name, String descriptor) {
-            sourceBuilder.append(name);
+            append(name);
         }
 
         @Override
         public void printReference(int type, String internalTypeName, String name, String descriptor, String ownerInternalName) {
-            sourceBuilder.append(name);
+            append(name);
         }
 
         @Override
@@ -195,24 +507,24 @@ public final class JDDecompiler implements Decompiler {
         @Override
         public void startLine(int lineNumber) {
             if (isDisplayLineNumbers) {
-                sourceBuilder.append(lineNumber);
+                append(String.valueOf(lineNumber));
             }
 
             for (int i = 0; i < indentCounter; i++) {
-                sourceBuilder.append(indentSpaces);
+                append(indentSpaces);
             }
         }
 
         @Override
         public void endLine() {
-            sourceBuilder.append(NEW_LINE);
+            append(NEW_LINE);
         }
 
         @Override
         public void extraLine(int count) {
             if (!isMergeEmptyLines) {
                 while (count-- > 0) {
-                    sourceBuilder.append(NEW_LINE);
+                    append(NEW_LINE);
                 }
             }
         }
@@ -225,8 +537,17 @@ public final class JDDecompiler implements Decompiler {
         public void endMarker(int type) {
         }
 
-        public String getSource() {
-            return sourceBuilder.toString();
+        /**
+         * Appends decompiled text to output
+         *
+         * @param text any text
+         */
+        private void append(CharSequence text) {
+            try {
+                output.append(text);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
         }
     }
 }
\ No newline at end of file
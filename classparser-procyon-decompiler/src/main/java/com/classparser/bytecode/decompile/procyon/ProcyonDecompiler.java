@@ -2,11 +2,13 @@ package com.classparser.bytecode.decompile.procyon;
 
 import com.classparser.bytecode.api.ByteCodeCollector;
 import com.classparser.bytecode.api.Decompiler;
-import com.classparser.bytecode.collector.ChainByteCodeCollector;
 import com.classparser.bytecode.configuration.ConfigurationManager;
 import com.classparser.bytecode.decompile.procyon.configuration.ProcyonBuilderConfiguration;
 import com.classparser.bytecode.exception.decompile.DecompilationException;
+import com.classparser.bytecode.utils.AppendableWriter;
 import com.classparser.bytecode.utils.ClassNameConverter;
+import com.classparser.bytecode.utils.Deadline;
+import com.classparser.bytecode.utils.ImplementationVersionUtils;
 import com.classparser.util.ConfigurationUtils;
 import com.strobel.assembler.metadata.Buffer;
 import com.strobel.assembler.metadata.DeobfuscationUtilities;
@@ -23,10 +25,12 @@ import com.strobel.decompiler.languages.java.BraceStyle;
 import com.strobel.decompiler.languages.java.JavaFormattingOptions;
 import com.strobel.decompiler.languages.java.JavaLanguage;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import static com.classparser.bytecode.decompile.procyon.configuration.ProcyonConfiguration.*;
 
@@ -40,46 +44,120 @@ import static com.classparser.bytecode.decompile.procyon.configuration.ProcyonCo
  */
 public final class ProcyonDecompiler implements Decompiler {
 
+    private static final int MAX_REFERENCE_TYPES = 1024;
+
+    private static final int START_POSITION = 0;
+
     private final ConfigurationUtils utils;
 
-    private volatile ConfigurationManager configurationManager;
+    private volatile ProcyonOptions options;
+
+    private final ThreadLocal<ReferenceMetadataSystem> referenceMetadataSystems;
 
     /**
      * Default constructor for creating {@link ProcyonDecompiler} instance
      */
     public ProcyonDecompiler() {
         this.utils = new ConfigurationUtils(getDefaultConfiguration());
+        this.referenceMetadataSystems = new ThreadLocal<>();
     }
 
     @Override
     public String decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes) {
-        if (byteCode != null && nestedClassesByteCodes != null) {
-            String className = ClassNameConverter.getClassName(byteCode);
-            Map<String, byte[]> byteCodeMap = createInnerClassesByteCodeMap(nestedClassesByteCodes);
-            byteCodeMap.put(className, byteCode);
+        PlainTextOutput output = new PlainTextOutput();
+        decompile(byteCode, nestedClassesByteCodes, output);
+
+        return output.toString();
+    }
+
+    @Override
+    public void decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes, Appendable output) {
+        decompile(byteCode, nestedClassesByteCodes, new PlainTextOutput(AppendableWriter.of(output)));
+    }
+
+    /**
+     * Decompiles byte code and writes decompiled code to text output
+     * Decompiled class and its inner classes are resolved by metadata system
+     * of this call, all other types are resolved by metadata system of current thread
+     * {@link Deadline} of current thread is checked after decompilation, because
+     * Procyon can replace code which failed to load referenced types by comments
+     * Metadata system of thread is dropped if decompilation was failed,
+     * because resolving of types could be stopped in the middle
+     *
+     * @param byteCode               byte code of class
+     * @param nestedClassesByteCodes byte code of inner classes
+     * @param output                 text output of decompiler
+     */
+    private void decompile(byte[] byteCode, Collection<byte[]> nestedClassesByteCodes, PlainTextOutput output) {
+        if (byteCode == null || nestedClassesByteCodes == null) {
+            throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        }
+
+        ProcyonOptions currentOptions = getOptions();
 
-            PlainTextOutput output = new PlainTextOutput();
-            DecompilerSettings settings = getDecompilerSettings();
+        String className = ClassNameConverter.getClassName(byteCode);
+        Map<String, byte[]> byteCodeMap = createInnerClassesByteCodeMap(nestedClassesByteCodes);
+        byteCodeMap.put(className, byteCode);
 
-            ITypeLoader typeLoader = new ProcyonTypeLoader(className, byteCodeMap);
-            MetadataSystem metadataSystem = new MetadataSystem(typeLoader);
+        ProcyonTypeLoader typeLoader = new ProcyonTypeLoader(className, byteCodeMap);
+        MetadataSystem metadataSystem = new CallMetadataSystem(typeLoader, getReferenceMetadataSystem(currentOptions));
+        try {
             TypeReference type = metadataSystem.lookupType(className);
 
             TypeDefinition resolvedType = type.resolve();
             DeobfuscationUtilities.processType(resolvedType);
-            DecompilationOptions options = new DecompilationOptions();
-            options.setSettings(settings);
 
-            if (settings.getJavaFormattingOptions() == null) {
-                settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
+            DecompilerSettings settings = currentOptions.decompilationOptions.getSettings();
+            settings.getLanguage().decompileType(resolvedType, output, currentOptions.decompilationOptions);
+            Deadline.checkCurrent();
+        } catch (RuntimeException exception) {
+            referenceMetadataSystems.remove();
+            throw exception;
+        }
+    }
+
+    /**
+     * Obtains compiled options of decompiler
+     * If configuration manager isn't set, then default
+     * configuration manager is created and set once
+     *
+     * @return options of decompiler
+     */
+    private ProcyonOptions getOptions() {
+        ProcyonOptions currentOptions = options;
+        if (currentOptions == null) {
+            synchronized (utils) {
+                if (options == null) {
+                    setConfigurationManager(new ConfigurationManager());
+                }
+
+                currentOptions = options;
             }
+        }
 
-            settings.getLanguage().decompileType(resolvedType, output, options);
+        return currentOptions;
+    }
 
-            return output.toString();
+    /**
+     * Obtains metadata system of referenced types of current thread
+     * Metadata system is recreated if options were changed, if it holds
+     * too many types or if class loader of any its type was collected
+     *
+     * @param options options of decompiler
+     * @return metadata system or null if referenced types should not be loaded
+     */
+    private ReferenceMetadataSystem getReferenceMetadataSystem(ProcyonOptions options) {
+        if (!options.isLoadReferenceOnClass) {
+            return null;
+        }
+
+        ReferenceMetadataSystem metadataSystem = referenceMetadataSystems.get();
+        if (metadataSystem == null || metadataSystem.options != options || !metadataSystem.isValid()) {
+            metadataSystem = new ReferenceMetadataSystem(options);
+            referenceMetadataSystems.set(metadataSystem);
         }
 
-        throw new DecompilationException("Byte code of classes for decompilation can't be a null!");
+        return metadataSystem;
     }
 
     /**
@@ -101,6 +179,7 @@ public final class ProcyonDecompiler implements Decompiler {
 
     /**
      * Parses and creates settings for procyon decompiler
+     * Settings are created only once for configuration epoch
      *
      * @return decompiler settings
      */
@@ -131,6 +210,10 @@ public final class ProcyonDecompiler implements Decompiler {
         settings.setDisableForEachTransforms(utils.getConfigOption(DISABLE_FOR_EACH_TRANSFORMS_KEY, Boolean.class));
         settings.setForceFullyQualifiedReferences(utils.getConfigOption(FORCE_FULLY_QUALIFIED_REFERENCES, Boolean.class));
 
+        if (settings.getJavaFormattingOptions() == null) {
+            settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
+        }
+
         return settings;
     }
 
@@ -171,28 +254,150 @@ public final class ProcyonDecompiler implements Decompiler {
                 .getConfiguration();
     }
 
+    /**
+     * Obtains version of Procyon library
+     *
+     * @return version of decompiler
+     */
+    @Override
+    public String getVersion() {
+        return ImplementationVersionUtils.getImplementationVersion(DecompilerSettings.class);
+    }
+
+    /**
+     * Sets configuration manager into decompiler
+     * Settings are created only if configuration manager is changed
+     * or configuration of it was reloaded
+     *
+     * @param configurationManager current configuration manager
+     */
     @Override
     public void setConfigurationManager(ConfigurationManager configurationManager) {
-        this.configurationManager = configurationManager;
         if (configurationManager != null) {
-            this.utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+            long epoch = configurationManager.getConfigurationEpoch();
+
+            synchronized (utils) {
+                ProcyonOptions currentOptions = options;
+                if (currentOptions == null
+                        || currentOptions.configurationManager != configurationManager
+                        || currentOptions.epoch != epoch) {
+                    utils.reloadConfiguration(configurationManager.getCustomDecompilerConfiguration());
+
+                    DecompilationOptions decompilationOptions = new DecompilationOptions();
+                    decompilationOptions.setSettings(getDecompilerSettings());
+                    boolean isLoadReferenceOnClass = utils.getConfigOption(UPLOAD_CLASS_REFERENCE_KEY, Boolean.class);
+
+                    options = new ProcyonOptions(configurationManager, epoch, decompilationOptions, isLoadReferenceOnClass);
+                }
+            }
         }
     }
 
     /**
-     * Implementation of {@link ITypeLoader} uses chain byte code load mechanism
+     * Compiled options of decompiler for configuration epoch
      */
-    private class ProcyonTypeLoader implements ITypeLoader {
+    private static class ProcyonOptions {
 
-        private static final int START_POSITION = 0;
+        private final ConfigurationManager configurationManager;
 
-        private final Map<String, byte[]> bytecodeMap;
+        private final long epoch;
 
-        private final String outerClassName;
+        private final DecompilationOptions decompilationOptions;
 
         private final boolean isLoadReferenceOnClass;
 
-        private final ByteCodeCollector collector;
+        private ProcyonOptions(ConfigurationManager configurationManager,
+                               long epoch,
+                               DecompilationOptions decompilationOptions,
+                               boolean isLoadReferenceOnClass) {
+            this.configurationManager = configurationManager;
+            this.epoch = epoch;
+            this.decompilationOptions = decompilationOptions;
+            this.isLoadReferenceOnClass = isLoadReferenceOnClass;
+        }
+    }
+
+    /**
+     * Metadata system of one decompilation
+     * Resolves only types which are loaded by type loader of call,
+     * other types are resolved by metadata system of referenced types
+     */
+    private static class CallMetadataSystem extends MetadataSystem {
+
+        private final ProcyonTypeLoader typeLoader;
+
+        private final ReferenceMetadataSystem referenceMetadataSystem;
+
+        private CallMetadataSystem(ProcyonTypeLoader typeLoader, ReferenceMetadataSystem referenceMetadataSystem) {
+            super(typeLoader);
+            this.typeLoader = typeLoader;
+            this.referenceMetadataSystem = referenceMetadataSystem;
+        }
+
+        @Override
+        protected TypeDefinition resolveType(String descriptor, boolean mightBePrimitive) {
+            if (referenceMetadataSystem == null || typeLoader.isDecompiledType(descriptor)) {
+                return super.resolveType(descriptor, mightBePrimitive);
+            }
+
+            return referenceMetadataSystem.resolveReferenceType(descriptor, mightBePrimitive);
+        }
+    }
+
+    /**
+     * Metadata system of referenced types, shared between decompilations of one thread
+     * Procyon reads class files with frames of resolver which aren't thread safe,
+     * so each thread uses own metadata system and types are resolved without locks
+     * <p>
+     * Class loaders of loaded types are tracked by weak references,
+     * metadata system becomes invalid if any of them was collected
+     * or if count of loaded types exceeds limit
+     */
+    private static class ReferenceMetadataSystem extends MetadataSystem {
+
+        private final ProcyonOptions options;
+
+        private final ReferenceTypeLoader typeLoader;
+
+        private ReferenceMetadataSystem(ProcyonOptions options) {
+            this(options, new ReferenceTypeLoader(options.configurationManager.getByteCodeCollector()));
+        }
+
+        private ReferenceMetadataSystem(ProcyonOptions options, ReferenceTypeLoader typeLoader) {
+            super(typeLoader);
+            this.options = options;
+            this.typeLoader = typeLoader;
+        }
+
+        /**
+         * Checks if types of metadata system are still actual
+         *
+         * @return true if metadata system can be used
+         */
+        private boolean isValid() {
+            return typeLoader.getLoadedTypesCount() < MAX_REFERENCE_TYPES && !typeLoader.isAnyClassLoaderCollected();
+        }
+
+        /**
+         * Resolves referenced type for metadata system of call
+         *
+         * @param descriptor       internal name of type
+         * @param mightBePrimitive true if descriptor can be name of primitive type
+         * @return type definition or null if type can't be loaded
+         */
+        private TypeDefinition resolveReferenceType(String descriptor, boolean mightBePrimitive) {
+            return resolveType(descriptor, mightBePrimitive);
+        }
+    }
+
+    /**
+     * Implementation of {@link ITypeLoader} loads only decompiled class and its inner classes
+     */
+    private static class ProcyonTypeLoader implements ITypeLoader {
+
+        private final Map<String, byte[]> bytecodeMap;
+
+        private final String innerClassPrefix;
 
         /**
          * Default constructor for create an instance of {@link ProcyonTypeLoader}
@@ -200,38 +405,88 @@ public final class ProcyonDecompiler implements Decompiler {
          * @param outerClassName name of main decompiled class
          * @param byteCodeMap    map of all inner classes for outer class
          */
-        public ProcyonTypeLoader(String outerClassName, Map<String, byte[]> byteCodeMap) {
-            this.outerClassName = outerClassName;
+        private ProcyonTypeLoader(String outerClassName, Map<String, byte[]> byteCodeMap) {
+            this.innerClassPrefix = outerClassName + '$';
             this.bytecodeMap = byteCodeMap;
-            this.isLoadReferenceOnClass = utils.getConfigOption(UPLOAD_CLASS_REFERENCE_KEY, Boolean.class);
-            this.collector = new ChainByteCodeCollector(configurationManager);
+        }
+
+        /**
+         * Checks if type is decompiled class or its inner class
+         * Inner classes without byte code are never loaded as referenced types
+         *
+         * @param baseClassName internal name of type
+         * @return true if type belongs to this decompilation
+         */
+        private boolean isDecompiledType(String baseClassName) {
+            return bytecodeMap.containsKey(baseClassName) || baseClassName.contains(innerClassPrefix);
         }
 
         @Override
         public boolean tryLoadType(String baseClassName, Buffer buffer) {
-            byte[] bytecode = bytecodeMap.get(baseClassName);
-
-            if (bytecode == null) {
-                if (isLoadReferenceOnClass) {
-                    if (baseClassName.contains(outerClassName + '$')) {
-                        return false;
-                    }
-
-                    bytecode = loadByteCode(ClassNameConverter.toJavaClassName(baseClassName));
-                    if (bytecode == null) {
-                        return false;
-                    }
-                } else {
-                    return false;
-                }
+            return putByteCode(bytecodeMap.get(baseClassName), buffer);
+        }
+    }
+
+    /**
+     * Implementation of {@link ITypeLoader} uses chain byte code load mechanism
+     * {@link Deadline} of current thread is checked before loading of each type
+     */
+    private static class ReferenceTypeLoader implements ITypeLoader {
+
+        private final ByteCodeCollector collector;
+
+        private final Map<ClassLoader, WeakReference<ClassLoader>> classLoaders;
+
+        private final ReferenceQueue<ClassLoader> collectedClassLoaders;
+
+        private int loadedTypesCount;
+
+        /**
+         * Default constructor for create an instance of {@link ReferenceTypeLoader}
+         *
+         * @param collector byte code collector
+         */
+        private ReferenceTypeLoader(ByteCodeCollector collector) {
+            this.collector = collector;
+            this.classLoaders = new WeakHashMap<>();
+            this.collectedClassLoaders = new ReferenceQueue<>();
+        }
+
+        @Override
+        public boolean tryLoadType(String baseClassName, Buffer buffer) {
+            Deadline.checkCurrent();
+            Class<?> clazz = loadClass(ClassNameConverter.toJavaClassName(baseClassName));
+            if (clazz == null || !putByteCode(collector.getByteCode(clazz), buffer)) {
+                return false;
             }
 
-            buffer.putByteArray(bytecode, START_POSITION, bytecode.length);
-            buffer.position(START_POSITION);
+            ClassLoader classLoader = clazz.getClassLoader();
+            if (classLoader != null) {
+                classLoaders.computeIfAbsent(classLoader, loader -> new WeakReference<>(loader, collectedClassLoaders));
+            }
 
+            loadedTypesCount++;
             return true;
         }
 
+        /**
+         * Obtains count of types were loaded by this loader
+         *
+         * @return count of loaded types
+         */
+        private int getLoadedTypesCount() {
+            return loadedTypesCount;
+        }
+
+        /**
+         * Checks if class loader of any loaded type was collected
+         *
+         * @return true if any class loader was collected
+         */
+        private boolean isAnyClassLoaderCollected() {
+            return collectedClassLoaders.poll() != null;
+        }
+
         /**
          * Try load class by full class name
          *
@@ -245,21 +500,23 @@ public final class ProcyonDecompiler implements Decompiler {
                 return null;
             }
         }
+    }
 
-        /**
-         * Try load byte code of class
-         *
-         * @param className name of class
-         * @return byte code of class or null if class or byte code is not found
-         */
-        private byte[] loadByteCode(String className) {
-            Class<?> clazz = loadClass(className);
+    /**
+     * Puts byte code of type to buffer of procyon
+     *
+     * @param byteCode byte code of type
+     * @param buffer   buffer of type loader
+     * @return true if byte code was put
+     */
+    private static boolean putByteCode(byte[] byteCode, Buffer buffer) {
+        if (byteCode == null) {
+            return false;
+        }
 
-            if (clazz != null) {
-                return collector.getByteCode(clazz);
-            }
+        buffer.putByteArray(byteCode, START_POSITION, byteCode.length);
+        buffer.position(START_POSITION);
 
-            return null;
-        }
+        return true;
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.classparser.reflection;
 
 import com.classparser.api.ClassParser;
+import com.classparser.api.ParsingResult;
 import com.classparser.configuration.Configuration;
 import com.classparser.reflection.configuration.ConfigurationManager;
 import com.classparser.reflection.exception.ReflectionParserException;
@@ -9,6 +10,11 @@ import com.classparser.reflection.parser.base.IndentParser;
 import com.classparser.reflection.parser.structure.ClassContentParser;
 import com.classparser.reflection.parser.structure.ClassSignatureParser;
 import com.classparser.reflection.parser.structure.PackageParser;
+import com.classparser.util.BulkParsingUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implementation of {@link ClassParser} provides
@@ -54,25 +60,101 @@ public class ReflectionParser implements ClassParser {
         return parseClass(clazz, new ParseContext(clazz));
     }
 
+    @Override
+    public void parseClass(Class<?> clazz, Appendable output) throws ReflectionParserException {
+        if (output == null) {
+            throw new ReflectionParserException("Output for parsed class can't be a null!");
+        }
+
+        try {
+            appendClass(clazz, new ParseContext(clazz), output);
+        } catch (IOException exception) {
+            throw new ReflectionParserException("Parsed class can't be written to output", exception);
+        }
+    }
+
     public String parseClass(Class<?> clazz, ParseContext context) throws ReflectionParserException {
-        if (clazz != null) {
-            setUp(clazz, context);
-            try {
-                String lineSeparator = configurationManager.getLineSeparator();
-                String packageName = packageParser.parsePackage(clazz, context);
-                String indent = indentParser.getIndent(clazz, context);
-                String classSignature = classSignatureParser.getClassSignature(clazz, context);
-                String classContent = classContentParser.getClassContent(clazz, context);
-                String imports = getImports(clazz, context);
-                String classBody = '{' + lineSeparator + lineSeparator + classContent + indent + '}';
-
-                return packageName + imports + classSignature + ' ' + classBody;
-            } finally {
-                tearDown(context);
+        StringBuilder output = new StringBuilder();
+        try {
+            appendClass(clazz, context, output);
+        } catch (IOException exception) {
+            throw new ReflectionParserException("Parsed class can't be written to output", exception);
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Parses class and appends parsed code to output
+     * Content of class is appended directly to output, it is buffered
+     * only if import section is displayed, because import section is
+     * known only after parsing of whole content of class
+     *
+     * @param clazz   any class
+     * @param context context of parsing class process
+     * @param output  output for parsed code
+     * @throws IOException if parsed code can't be appended to output
+     */
+    public void appendClass(Class<?> clazz, ParseContext context, Appendable output) throws IOException {
+        if (clazz == null) {
+            throw new ReflectionParserException("Parsed class can't be a null!");
+        }
+
+        setUp(clazz, context);
+        try {
+            String lineSeparator = configurationManager.getLineSeparator();
+            String packageName = packageParser.parsePackage(clazz, context);
+            String indent = indentParser.getIndent(clazz, context);
+            String classSignature = classSignatureParser.getClassSignature(clazz, context);
+
+            StringBuilder classContent = null;
+            output.append(packageName);
+            if (isDisplayImports(clazz, context)) {
+                classContent = new StringBuilder();
+                classContentParser.appendClassContent(clazz, context, classContent);
+                output.append(importParser.getImports(context));
+            }
+
+            output.append(classSignature).append(' ').append('{').append(lineSeparator).append(lineSeparator);
+            if (classContent != null) {
+                output.append(classContent);
+            } else {
+                classContentParser.appendClassContent(clazz, context, output);
+            }
+            output.append(indent).append('}');
+        } finally {
+            tearDown(context);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> parseClassAsync(Class<?> clazz) {
+        return CompletableFuture.supplyAsync(() -> parseClass(clazz), configurationManager.getParsingExecutor());
+    }
+
+    @Override
+    public ParsingResult parseClasses(Collection<Class<?>> classes) {
+        return BulkParsingUtils.parseClasses(this, classes,
+                configurationManager.getParsingExecutor(),
+                this::getDeclaringClass);
+    }
+
+    /**
+     * Obtains declaring class which parsed code contains code of class
+     *
+     * @param clazz any class
+     * @return declaring class or null if inner classes are not displayed
+     */
+    private Class<?> getDeclaringClass(Class<?> clazz) {
+        if (clazz != null && configurationManager.isDisplayInnerClasses()) {
+            if (clazz.isSynthetic() && !configurationManager.isDisplaySyntheticEntities()) {
+                return null;
             }
+
+            return clazz.getDeclaringClass();
         }
 
-        throw new ReflectionParserException("Parsed class can't be a null!");
+        return null;
     }
 
     /**
@@ -95,18 +177,14 @@ public class ReflectionParser implements ClassParser {
     }
 
     /**
-     * Parses import section for class
+     * Checks if import section should be displayed for class
      *
      * @param clazz any class
      * @param context context of parsing class process
-     * @return parsed import section or empty string if {@link ConfigurationManager#isDisplayImports()} disable
+     * @return true if class is based parsed class and {@link ConfigurationManager#isDisplayImports()} enable
      */
-    private String getImports(Class<?> clazz, ParseContext context) {
-        if (context.isBasedParsedClass(clazz) && configurationManager.isDisplayImports()) {
-            return importParser.getImports(context);
-        }
-
-        return "";
+    private boolean isDisplayImports(Class<?> clazz, ParseContext context) {
+        return context.isBasedParsedClass(clazz) && configurationManager.isDisplayImports();
     }
 
     @Override
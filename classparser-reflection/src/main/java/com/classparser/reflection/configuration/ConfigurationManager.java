@@ -5,6 +5,8 @@ import com.classparser.reflection.ReflectionParser;
 import com.classparser.util.ConfigurationUtils;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.classparser.reflection.configuration.api.ReflectionParserConfiguration.*;
 
@@ -56,6 +58,7 @@ public class ConfigurationManager {
      *      <li>{@link #isDisplayImports()} - yes</li>
      *      <li>{@link #getIndentSpaces()} - 4 spaces</li>
      *      <li>{@link #chooseSystemNewLineCharacter} - choice depend on the system</li>
+     *      <li>{@link #getParsingExecutor()} - {@link ForkJoinPool#commonPool()}</li>
      * </ul>
      *
      * @return default configuration
@@ -77,6 +80,7 @@ public class ConfigurationManager {
                 .displayImports(true)
                 .setCountIndentSpaces(4)
                 .defineLineSeparator(chooseSystemNewLineCharacter())
+                .setParsingExecutor(ForkJoinPool.commonPool())
                 .getConfiguration();
     }
 
@@ -233,4 +237,13 @@ public class ConfigurationManager {
     public String getLineSeparator() {
         return utils.getConfigOption(LINE_SEPARATOR_KEY, String.class);
     }
+
+    /**
+     * Obtains executor for parsing of several classes
+     *
+     * @return executor service
+     */
+    public ExecutorService getParsingExecutor() {
+        return utils.getConfigOption(PARSING_EXECUTOR_KEY, ExecutorService.class);
+    }
 }
\ No newline at end of file
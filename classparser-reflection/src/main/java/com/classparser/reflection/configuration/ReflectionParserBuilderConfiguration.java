@@ -5,6 +5,7 @@ import com.classparser.reflection.configuration.api.ReflectionParserConfiguratio
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Class provides java API special builder for creating
@@ -129,5 +130,13 @@ public class ReflectionParserBuilderConfiguration {
             configuration.put(PARSE_ENUM_AS_CLASS, flag);
             return this;
         }
+
+        @Override
+        public ReflectionParserConfiguration setParsingExecutor(ExecutorService executor) {
+            if (executor != null) {
+                configuration.put(PARSING_EXECUTOR_KEY, executor);
+            }
+            return this;
+        }
     }
 }
\ No newline at end of file
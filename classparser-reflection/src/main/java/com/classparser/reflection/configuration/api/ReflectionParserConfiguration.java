@@ -4,6 +4,9 @@ import com.classparser.configuration.Configuration;
 import com.classparser.reflection.ReflectionParser;
 
 import java.lang.annotation.ElementType;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Builder interface provides configuration API for class: {@link ReflectionParser}
@@ -41,6 +44,8 @@ public interface ReflectionParserConfiguration extends Configuration {
 
     String PARSE_ENUM_AS_CLASS = "pec";
 
+    String PARSING_EXECUTOR_KEY = "pex";
+
     /**
      * Set displaying annotation on types like
      * example {@link ElementType#TYPE_USE} or {@link ElementType#TYPE_PARAMETER}
@@ -199,4 +204,17 @@ public interface ReflectionParserConfiguration extends Configuration {
      * @return builder instance
      */
     ReflectionParserConfiguration defineLineSeparator(String character);
+
+    /**
+     * Sets executor uses for parsing of several classes
+     * by {@link ReflectionParser#parseClasses(Collection)}
+     * and by {@link ReflectionParser#parseClassAsync(Class)}
+     * <p>
+     * Default value: {@link ForkJoinPool#commonPool()}
+     * </p>
+     *
+     * @param executor executor service or fork join pool
+     * @return builder instance
+     */
+    ReflectionParserConfiguration setParsingExecutor(ExecutorService executor);
 }
\ No newline at end of file
@@ -6,9 +6,8 @@ import com.classparser.reflection.configuration.ConfigurationManager;
 import com.classparser.reflection.parser.structure.executeble.ConstructorParser;
 import com.classparser.reflection.parser.structure.executeble.MethodParser;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ClassContentParser {
 
@@ -34,24 +33,56 @@ public class ClassContentParser {
     }
 
     /**
-     * Parses signature for class
+     * Parses content for class and appends it to output
      * Includes fields, static initializer block, constructors, methods and inner classes
+     * Sections are appended one by one without joining them into intermediate strings
      *
      * @param clazz   any class
      * @param context context of parsing class process
-     * @return parsed class context
+     * @param output  output for parsed class content
+     * @throws IOException if content can't be appended to output
      */
-    public String getClassContent(Class<?> clazz, ParseContext context) {
-        List<String> contents = new ArrayList<>();
+    public void appendClassContent(Class<?> clazz, ParseContext context, Appendable output) throws IOException {
+        String lineSeparator = manager.getLineSeparator();
 
-        contents.add(fieldParser.parseFields(clazz, context));
-        contents.add(blockParser.parseStaticBlock(clazz, context));
-        contents.add(constructorParser.parseConstructors(clazz, context));
-        contents.add(methodParser.parseMethods(clazz, context));
-        contents.add(classesParser.parseInnerClasses(clazz, context));
+        boolean hasContent = appendSection(output, fieldParser.parseFields(clazz, context), false, lineSeparator);
+        hasContent = appendSection(output, blockParser.parseStaticBlock(clazz, context), hasContent, lineSeparator);
+        hasContent = appendSection(output, constructorParser.parseConstructors(clazz, context), hasContent, lineSeparator);
+        hasContent = appendSection(output, methodParser.parseMethods(clazz, context), hasContent, lineSeparator);
 
-        String lineSeparator = manager.getLineSeparator();
+        List<Class<?>> innerClasses = classesParser.getDisplayedInnerClasses(clazz);
+        if (!innerClasses.isEmpty()) {
+            if (hasContent) {
+                output.append(lineSeparator);
+            }
+            classesParser.appendInnerClasses(innerClasses, context, output);
+        }
+    }
+
+    /**
+     * Appends non-empty section of class content to output
+     * Sections are separated by line separator
+     *
+     * @param output        output for parsed class content
+     * @param section       parsed section of class content
+     * @param hasContent    true if any section was already appended
+     * @param lineSeparator line separator
+     * @return true if any section was appended
+     * @throws IOException if section can't be appended to output
+     */
+    private boolean appendSection(Appendable output,
+                                  String section,
+                                  boolean hasContent,
+                                  String lineSeparator) throws IOException {
+        if (section.isEmpty()) {
+            return hasContent;
+        }
+
+        if (hasContent) {
+            output.append(lineSeparator);
+        }
+        output.append(section);
 
-        return contents.stream().filter(content -> !content.isEmpty()).collect(Collectors.joining(lineSeparator));
+        return true;
     }
 }
@@ -1,11 +1,12 @@
 package com.classparser.reflection.parser.structure;
 
 import com.classparser.reflection.ParseContext;
-import com.classparser.reflection.ContentJoiner;
 import com.classparser.reflection.ReflectionParser;
 import com.classparser.reflection.configuration.ConfigurationManager;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -27,26 +28,49 @@ public class ClassesParser {
     }
 
     /**
-     * Parses inner and nested class meta information and collects info to {@link String}
+     * Obtains inner and nested classes which should be displayed
      *
      * @param clazz any class
-     * @param context context of parsing class process
-     * @return string line of meta information for inner and nested classes
+     * @return list of inner and nested classes or empty list if inner classes are not displayed
      */
-    public String parseInnerClasses(Class<?> clazz, ParseContext context) {
+    public List<Class<?>> getDisplayedInnerClasses(Class<?> clazz) {
         if (configurationManager.isDisplayInnerClasses()) {
-            List<String> classes = new ArrayList<>();
+            List<Class<?>> classes = new ArrayList<>();
 
             for (Class<?> declaredClass : clazz.getDeclaredClasses()) {
                 if (isShouldBeDisplayed(clazz)) {
-                    classes.add(classParser.parseClass(declaredClass, context));
+                    classes.add(declaredClass);
                 }
             }
 
-            return ContentJoiner.joinContent(classes, configurationManager.getLineSeparator());
+            return classes;
         }
 
-        return "";
+        return Collections.emptyList();
+    }
+
+    /**
+     * Parses inner and nested class meta information and appends it to output
+     * Classes are separated by one above and one under line separator
+     *
+     * @param classes inner and nested classes
+     * @param context context of parsing class process
+     * @param output  output for parsed classes
+     * @throws IOException if parsed classes can't be appended to output
+     */
+    public void appendInnerClasses(List<Class<?>> classes, ParseContext context, Appendable output) throws IOException {
+        if (!classes.isEmpty()) {
+            String lineSeparator = configurationManager.getLineSeparator();
+
+            for (int index = 0; index < classes.size(); index++) {
+                if (index > 0) {
+                    output.append(lineSeparator).append(lineSeparator);
+                }
+                classParser.appendClass(classes.get(index), context, output);
+            }
+
+            output.append(lineSeparator);
+        }
     }
 
     /**